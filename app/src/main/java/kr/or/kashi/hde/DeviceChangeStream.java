@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde;
+
+import android.util.ArrayMap;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import kr.or.kashi.hde.base.PropertyValue;
+
+/**
+ * The stream of property changes of all the devices in a network. Changes are
+ * queued into a bounded ring buffer where the changes of same device are
+ * merged into one record until taken, so a slow consumer only makes records
+ * bigger instead of making the queue longer. Records can be taken by
+ * {@link #drain(List, int)}, or delivered to a listener that is called again
+ * only after it has returned (so at most one delivery is in flight).
+ *
+ * The executor is never called while holding the lock of stream, so that it
+ * can run the delivery directly or publish changes from the listener.
+ */
+public class DeviceChangeStream {
+    private static final String TAG = DeviceChangeStream.class.getSimpleName();
+    private static final boolean DBG = false;
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** Changed properties of a device */
+    public static final class Change {
+        private final String mAddress;
+        private final List<PropertyValue> mProperties;
+        private final long mTimestamp;
+
+        Change(String address, List<PropertyValue> properties, long timestamp) {
+            mAddress = address;
+            mProperties = properties;
+            mTimestamp = timestamp;
+        }
+
+        /** The address of device */
+        public String getAddress() {
+            return mAddress;
+        }
+
+        /** The last values of properties changed since previous record of the device */
+        public List<PropertyValue> getProperties() {
+            return mProperties;
+        }
+
+        /** The uptime (ms) when the last change has been made */
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+    }
+
+    public interface Listener {
+        void onDeviceChanged(List<Change> changes);
+    }
+
+    private static final class Entry {
+        String address;
+        final Map<String, PropertyValue> props = new ArrayMap<>();
+        long timestamp;
+    }
+
+    private final Object mLock = new Object();
+    private final Entry[] mRing;
+    private final Map<String, Entry> mPendingEntries = new ArrayMap<>();
+    private int mHead = 0;
+    private int mCount = 0;
+    private long mDroppedCount = 0L;
+
+    private Listener mListener;
+    private Executor mExecutor;
+    private boolean mDelivering = false;
+    private final Runnable mDeliverRunnable = this::deliver;
+
+    public DeviceChangeStream() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DeviceChangeStream(int capacity) {
+        mRing = new Entry[Math.max(1, capacity)];
+    }
+
+    /**
+     * Sets the listener that receives the records taken from the stream.
+     * @param listener The listener, or {@code null} to take records only by {@link #drain(List, int)}.
+     * @param executor The executor to call the listener, must not be {@code null} with listener.
+     */
+    public void setListener(Listener listener, Executor executor) {
+        if (listener != null && executor == null) throw new IllegalArgumentException("Executor is null");
+
+        final Executor deliveryExecutor;
+        synchronized (mLock) {
+            mListener = listener;
+            mExecutor = executor;
+            deliveryExecutor = scheduleDeliveryLocked();
+        }
+        if (deliveryExecutor != null) deliveryExecutor.execute(mDeliverRunnable);
+    }
+
+    /** The number of records dropped since the buffer has been full */
+    public long getDroppedCount() {
+        synchronized (mLock) {
+            return mDroppedCount;
+        }
+    }
+
+    /**
+     * Takes the records in the order of the first change of each device.
+     * @param outChanges The list to add the records to.
+     * @param maxCount The maximum number of records to take.
+     * @return The number of records taken.
+     */
+    public int drain(List<Change> outChanges, int maxCount) {
+        synchronized (mLock) {
+            int taken = 0;
+            while (mCount > 0 && taken < maxCount) {
+                final Entry entry = mRing[mHead];
+                mRing[mHead] = null;
+                mHead = (mHead + 1) % mRing.length;
+                mCount--;
+                mPendingEntries.remove(entry.address);
+
+                final List<PropertyValue> props = new ArrayList<>(entry.props.values());
+                outChanges.add(new Change(entry.address, Collections.unmodifiableList(props), entry.timestamp));
+                taken++;
+            }
+            return taken;
+        }
+    }
+
+    void publish(String address, List<PropertyValue> props, long timestamp) {
+        final Executor deliveryExecutor;
+        synchronized (mLock) {
+            Entry entry = mPendingEntries.get(address);
+            if (entry == null) {
+                if (mCount == mRing.length) {
+                    // No more room, drop the oldest record.
+                    final Entry oldest = mRing[mHead];
+                    mPendingEntries.remove(oldest.address);
+                    mHead = (mHead + 1) % mRing.length;
+                    mCount--;
+                    mDroppedCount++;
+                    if (DBG) Log.w(TAG, "buffer is full, dropped changes of " + oldest.address);
+                }
+
+                entry = new Entry();
+                entry.address = address;
+                mRing[(mHead + mCount) % mRing.length] = entry;
+                mCount++;
+                mPendingEntries.put(address, entry);
+            }
+
+            for (int i = 0; i < props.size(); i++) {
+                final PropertyValue prop = props.get(i);
+                entry.props.put(prop.getName(), prop);
+            }
+            entry.timestamp = timestamp;
+
+            deliveryExecutor = scheduleDeliveryLocked();
+        }
+        if (deliveryExecutor != null) deliveryExecutor.execute(mDeliverRunnable);
+    }
+
+    /**
+     * Marks a delivery as in flight if it's needed.
+     * @return The executor to run the delivery on after releasing the lock, or {@code null} if not needed.
+     */
+    private Executor scheduleDeliveryLocked() {
+        if (mListener == null || mDelivering || mCount == 0) return null;
+        mDelivering = true;
+        return mExecutor;
+    }
+
+    private void deliver() {
+        final Listener listener;
+        final List<Change> changes = new ArrayList<>();
+        synchronized (mLock) {
+            listener = mListener;
+            if (listener != null) drain(changes, mRing.length);
+        }
+
+        try {
+            if (listener != null && !changes.isEmpty()) {
+                listener.onDeviceChanged(changes);
+            }
+        } finally {
+            final Executor deliveryExecutor;
+            synchronized (mLock) {
+                mDelivering = false;
+                deliveryExecutor = scheduleDeliveryLocked(); // for records queued in the meantime
+            }
+            if (deliveryExecutor != null) deliveryExecutor.execute(mDeliverRunnable);
+        }
+    }
+}
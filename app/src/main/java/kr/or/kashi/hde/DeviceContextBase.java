@@ -21,20 +21,25 @@ import android.annotation.IntDef;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.SystemClock;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import kr.or.kashi.hde.base.BasicPropertyMap;
-import kr.or.kashi.hde.base.PropertyInflater;
+import kr.or.kashi.hde.base.PropertySchema;
 import kr.or.kashi.hde.base.ReadOnlyPropertyMap;
+import kr.or.kashi.hde.base.SlotPropertyMap;
+import kr.or.kashi.hde.base.SlotStagingPropertyMap;
 import kr.or.kashi.hde.base.StageablePropertyMap;
 import kr.or.kashi.hde.device.AirConditioner;
 import kr.or.kashi.hde.ksx4506.KSAirConditioner;
@@ -75,15 +80,26 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
         default void onErrorOccurred(int error) {}
     }
 
+    private final MainContext mMainContext;
     private final Class<?> mDeviceClass;
     private final Handler mHandler;
     private Runnable mUpdateReqRunnable;
     private Listener mListener;
 
-    protected final PropertyMap mBasePropertyMap = new BasicPropertyMap();
-    protected final StageablePropertyMap mRxPropertyMap = new StageablePropertyMap(mBasePropertyMap);
-    protected final PropertyMap mReadOnlyPropertyMap = new ReadOnlyPropertyMap(mRxPropertyMap, true);
-    private final Map<String, PropertyTask> mPropTaskMap = new ConcurrentHashMap<>();
+    protected final PropertyMap mBasePropertyMap;
+    protected final StageablePropertyMap mRxPropertyMap;
+    protected final PropertyMap mReadOnlyPropertyMap;
+
+    // Tasks are indexed by the slot of property, and the tasks to be run by a
+    // request are marked in the bit set that is reused as well as the staging map.
+    private final Object mTxLock = new Object();
+    private final PropertySchema mSchema;
+    private final SlotStagingPropertyMap mTxPropertyMap;
+    private final List<PropertyTask> mTasks = new ArrayList<>();
+    private final int[] mSlotTaskIndexes;
+    private final Map<String, Integer> mExtraTaskIndexes = new ArrayMap<>();
+    private final BitSet mPendingTasks = new BitSet();
+    private boolean mTxBusy = false;
 
     private boolean mIsSlave = false;
     private HomeAddress mAddress;
@@ -93,15 +109,39 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
     protected long mPollInterval = 0L;
     protected long mLastUpdateTime = 0L;
 
+    // Children can be read while parsing in the rx looper (or the receiving thread
+    // in slave mode), so they're changed under lock and read from the snapshots.
     protected DeviceContextBase mParent;
-    private Map<String, DeviceContextBase> mChildren = new TreeMap<>();     // Always sorted.
+    private final Map<String, DeviceContextBase> mChildren = new TreeMap<>();  // Always sorted, guarded by itself
+    private volatile DeviceContextBase[] mChildArray = new DeviceContextBase[0]; // Snapshot of children
+    private volatile Map<String, DeviceContextBase> mChildMap = Collections.emptyMap();
+    private volatile List<DeviceContextBase> mChildList = Collections.emptyList();
+    private final List<PropertyValue> mPropagatingProps = new ArrayList<>();
+    private final List<PropertyValue> mFlushingProps = new ArrayList<>();
+    private boolean mFlushBusy = false;
+
+    // Increased whenever the state of this or any descendant is changed.
+    private final AtomicLong mStateVersion = new AtomicLong(1L);
+    private final Runnable mStateChangeRunnable = this::onStateChanged; // Held strongly
 
     public DeviceContextBase(MainContext mainContext, Map defaultProps, Class<?> deviceClass) {
+        mMainContext = mainContext;
         mDeviceClass = deviceClass;
-        mHandler = new Handler(Looper.getMainLooper());
-        mRxPropertyMap.putAll(PropertyInflater.inflate(deviceClass));       // Put all default properties as base
+        // Tasks run in the looper where packets are parsed, not to race with parsing.
+        mHandler = new Handler((mainContext != null) ? mainContext.getRxLooper() : Looper.getMainLooper());
+
+        // The base map starts with all default properties in the slots of the class.
+        mSchema = PropertySchema.of(deviceClass);
+        mBasePropertyMap = new SlotPropertyMap(mSchema);
+        mRxPropertyMap = new StageablePropertyMap(mBasePropertyMap);
+        mReadOnlyPropertyMap = new ReadOnlyPropertyMap(mRxPropertyMap, true);
+        mTxPropertyMap = new SlotStagingPropertyMap(mBasePropertyMap, mSchema);
+        mSlotTaskIndexes = new int[mSchema.size()];
+        Arrays.fill(mSlotTaskIndexes, -1);
+
         mRxPropertyMap.putAll((Map<String, PropertyValue>)defaultProps);    // Overwrite initial properties
         mRxPropertyMap.commit();
+        mBasePropertyMap.addChangeRunnable(mStateChangeRunnable);
 
         if (DBG) Log.d(TAG, mDeviceClass.getSimpleName() + ", default properties: " + mRxPropertyMap.toString());
 
@@ -136,52 +176,104 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
     }
 
     public boolean hasChild() {
-        return mChildren.size() > 0;
+        return mChildArray.length > 0;
     }
 
     public int getChildCount() {
-        return mChildren.size();
+        return mChildArray.length;
     }
 
     public Collection<DeviceContextBase> getChildren() {
-        return mChildren.values();
+        return mChildList;
     }
 
     public <E> E getChild(Class<E> clazz, String address) {
-        return (E) mChildren.get(address);
+        return (E) mChildMap.get(address);
     }
 
     public <E> E getChildAt(Class<E> clazz, int index) {
-        if (index >= getChildCount()) return null;
-        return (E) getChildren(clazz).toArray()[index];
+        final DeviceContextBase[] children = mChildArray;
+        if (index >= children.length) return null;
+        return (E) children[index];
     }
 
     public <E> Collection<E> getChildren(Class<E> clazz) {
-        return (Collection<E>) mChildren.values();
+        return (Collection<E>) mChildList;
     }
 
     public void addChild(DeviceContextBase child) {
         if (child != null) {
-            child.mParent = this;
-            mChildren.put(child.getAddress().getDeviceAddress(), child);
+            synchronized (mChildren) {
+                child.mParent = this;
+                mChildren.put(child.getAddress().getDeviceAddress(), child);
+                updateChildSnapshotsLocked();
+            }
         }
     }
 
     public void removeChild(DeviceContextBase child) {
         if (child != null) {
             String devAddress = child.getAddress().getDeviceAddress();
-            if (mChildren.containsKey(devAddress)) {
-                mChildren.remove(devAddress);
-                child.mParent = null;
+            synchronized (mChildren) {
+                if (mChildren.containsKey(devAddress)) {
+                    mChildren.remove(devAddress);
+                    child.mParent = null;
+                    updateChildSnapshotsLocked();
+                }
             }
         }
     }
 
     public void removeAllChildren() {
-        for (DeviceContextBase child: mChildren.values()) {
-            child.mParent = null;
+        synchronized (mChildren) {
+            for (DeviceContextBase child: mChildren.values()) {
+                child.mParent = null;
+            }
+            mChildren.clear();
+            updateChildSnapshotsLocked();
+        }
+    }
+
+    private void updateChildSnapshotsLocked() {
+        final DeviceContextBase[] children = mChildren.values().toArray(new DeviceContextBase[0]);
+        mChildMap = Collections.unmodifiableMap(new TreeMap<>(mChildren));
+        mChildList = Collections.unmodifiableList(Arrays.asList(children));
+        mChildArray = children;
+        onStateChanged();
+    }
+
+    /**
+     * Returns the version of state that is increased whenever any property of
+     * this context or its descendants is changed, or a child is added or removed.
+     * A result made from the state can be reused as long as this is not changed.
+     */
+    public long getStateVersion() {
+        return mStateVersion.get();
+    }
+
+    /**
+     * Increases the version of state without any property changed, for the
+     * state that is kept in fields of context and results are made from.
+     */
+    protected void invalidateState() {
+        onStateChanged();
+    }
+
+    private void onStateChanged() {
+        for (DeviceContextBase dc = this; dc != null; dc = dc.mParent) {
+            dc.mStateVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Updates properties of this and all the descendants, by committing only
+     * once per context no matter how many properties are propagated.
+     */
+    public void propagateProperties(List<PropertyValue> props) {
+        updateProperties(props);
+        for (DeviceContextBase child : mChildArray) {
+            child.propagateProperties(props);
         }
-        mChildren.clear();
     }
 
     public Class<?> getDeviceClass() {
@@ -209,6 +301,13 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
     }
 
     public boolean setProperty(List<PropertyValue> props) {
+        if (Looper.myLooper() != mHandler.getLooper()) {
+            // Tasks stage and commit the same property maps as parsing does,
+            // so they're run only in the looper where packets are parsed.
+            mHandler.post(() -> setProperty(props));
+            return true;
+        }
+
         if (DBG) {
             final String address = getAddress().getDeviceAddress();
             for (PropertyValue p: props) {
@@ -220,25 +319,23 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
             }
         }
 
-        List<PropertyTask> currentTasks = new ArrayList();
-
-        // Make copy of the property map and update with new properties
-        StageablePropertyMap tempMap = new StageablePropertyMap(mBasePropertyMap, true /* allow same */);
-        tempMap.putAll(props);
-
-        for (PropertyValue prop: props) {
-            PropertyTask task = mPropTaskMap.get(prop.getName());
-            if (task != null && !currentTasks.contains(task)) {
-                currentTasks.add(task);
+        synchronized (mTxLock) {
+            if (mTxBusy) {
+                // Called again by a task in the middle of running, so the reused
+                // staging map and the bit set can't be used for this time.
+                runTasksOnce(props);
+            } else {
+                mTxBusy = true;
+                try {
+                    runTasks(props, mTxPropertyMap, mPendingTasks);
+                } finally {
+                    mTxPropertyMap.clearStaged();
+                    mPendingTasks.clear();
+                    mTxBusy = false;
+                }
             }
         }
 
-        for (PropertyTask task: currentTasks) {
-            task.execTask(tempMap, mRxPropertyMap);
-        }
-
-        tempMap.clearStaged();
-
         commitPropertyChanges(mRxPropertyMap);
 
         return true; // TODO: Confirm the purpose of this return value, see DeviceContext
@@ -293,12 +390,85 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
         return mLastUpdateTime;
     }
 
+    private void runTasksOnce(List<PropertyValue> props) {
+        runTasks(props, new SlotStagingPropertyMap(mBasePropertyMap, mSchema), new BitSet());
+    }
+
+    private void runTasks(List<PropertyValue> props, SlotStagingPropertyMap newProps, BitSet pendingTasks) {
+        // Update the staging map with new properties over current ones, one by
+        // one not to collect the changed values as putAll() does.
+        for (int i = 0; i < props.size(); i++) {
+            newProps.put(props.get(i));
+        }
+
+        // Mark the tasks of the properties, so each task runs only once.
+        for (int i = 0; i < props.size(); i++) {
+            final int taskIndex = getTaskIndex(props.get(i).getName());
+            if (taskIndex >= 0) pendingTasks.set(taskIndex);
+        }
+
+        for (int i = pendingTasks.nextSetBit(0); i >= 0; i = pendingTasks.nextSetBit(i + 1)) {
+            mTasks.get(i).execTask(newProps, mRxPropertyMap);
+        }
+
+        flushPropagation();
+    }
+
+    private void flushPropagation() {
+        if (mPropagatingProps.isEmpty()) return;
+
+        // Propagate all the properties requested by tasks at once from the root,
+        // with the list reused unless this is called again while propagating.
+        final boolean reentered = mFlushBusy;
+        final List<PropertyValue> props = reentered ? new ArrayList<>() : mFlushingProps;
+        props.addAll(mPropagatingProps);
+        mPropagatingProps.clear();
+
+        DeviceContextBase root = this;
+        while (root.getParent() != null) root = root.getParent();
+
+        mFlushBusy = true;
+        try {
+            root.propagateProperties(props);
+        } finally {
+            mFlushBusy = reentered;
+            if (!reentered) props.clear();
+        }
+    }
+
+    private int getTaskIndex(String propName) {
+        final int slot = mSchema.slotOf(propName);
+        if (slot >= 0) return mSlotTaskIndexes[slot];
+        final Integer index = mExtraTaskIndexes.get(propName);
+        return (index != null) ? index : -1;
+    }
+
     protected void setPropertyTask(String propName, PropertyTask task) {
-        mPropTaskMap.put(propName, task);
+        synchronized (mTxLock) {
+            int taskIndex = mTasks.indexOf(task);
+            if (taskIndex < 0) {
+                taskIndex = mTasks.size();
+                mTasks.add(task);
+            }
+
+            final int slot = mSchema.slotOf(propName);
+            if (slot >= 0) {
+                mSlotTaskIndexes[slot] = taskIndex;
+            } else {
+                mExtraTaskIndexes.put(propName, taskIndex);
+            }
+        }
     }
 
     protected void clearPropertyTask(String propName) {
-        mPropTaskMap.remove(propName);
+        synchronized (mTxLock) {
+            final int slot = mSchema.slotOf(propName);
+            if (slot >= 0) {
+                mSlotTaskIndexes[slot] = -1;
+            } else {
+                mExtraTaskIndexes.remove(propName);
+            }
+        }
     }
 
     public @ParseResult int parsePacket(HomePacket packet) {
@@ -326,18 +496,16 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
     }
 
     protected void commitPropertyChanges(StageablePropertyMap propMap) {
-        if (propMap.isStaging()) {
-            final List<PropertyValue> originalValues = new ArrayList<>();
-            final List<PropertyValue> stagingValues= new ArrayList<>();
-            propMap.getStaging(originalValues, stagingValues);
-            propMap.commit();
-
-            if (mListener != null) {
-                for (PropertyValue prop: stagingValues) {
-                    Log.d(TAG, mLogPrefix + " prop changed :: " + prop.getName() + "=" + prop.getValue());
-                }
-                mListener.onPropertyChanged(stagingValues);
+        final List<PropertyValue> committedValues = propMap.commit();
+        if (committedValues.isEmpty()) return;
+
+        if (mMainContext != null) mMainContext.onDevicePropertyChanged(this, committedValues);
+
+        if (mListener != null) {
+            for (PropertyValue prop: committedValues) {
+                Log.d(TAG, mLogPrefix + " prop changed :: " + prop.getName() + "=" + prop.getValue());
             }
+            mListener.onPropertyChanged(committedValues);
         }
     }
 
@@ -385,17 +553,14 @@ public abstract class DeviceContextBase implements DeviceStatePollee {
 
         @Override
         public boolean execTask(PropertyMap newProps, PropertyMap outProps) {
-            DeviceContextBase dc = DeviceContextBase.this;
-            while (dc.getParent() != null) dc = dc.getParent();
-            syncPropRecursively(dc, newProps.get(mPropName));
+            // Just queue here, all the queued properties are propagated together
+            // after all the tasks are done, see flushPropagation().
+            mPropagatingProps.add(newProps.get(mPropName));
             return true;
         }
 
         public void syncPropRecursively(DeviceContextBase dc, PropertyValue propValue) {
-            dc.updateProperty(propValue);
-            for (DeviceContextBase child: dc.getChildren(DeviceContextBase.class)) {
-                syncPropRecursively(child, propValue);
-            }
+            dc.propagateProperties(Collections.singletonList(propValue));
         }
     }
 }
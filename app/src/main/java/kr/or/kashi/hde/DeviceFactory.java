@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde;
+
+import android.util.Log;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import kr.or.kashi.hde.device.*;
+
+/**
+ * Factory that creates device contexts and devices without looking up
+ * constructors by reflection for each device.
+ */
+public final class DeviceFactory {
+    private static final String TAG = DeviceFactory.class.getSimpleName();
+
+    /** Builds the context of device, see {@link MainContext#getContextBuilder(Map)} */
+    public interface ContextBuilder {
+        DeviceContextBase build(MainContext mainContext, Map defaultProps);
+    }
+
+    /** Builds the device that wraps its context */
+    public interface DeviceBuilder {
+        HomeDevice build(DeviceContextBase deviceContext);
+    }
+
+    private static final Map<Class<?>, DeviceBuilder> sDeviceBuilders = new ConcurrentHashMap<>();
+
+    static {
+        registerDevice(HomeDevice.class, HomeDevice::new);
+        registerDevice(AirConditioner.class, AirConditioner::new);
+        registerDevice(BatchSwitch.class, BatchSwitch::new);
+        registerDevice(BinarySensors.class, BinarySensors::new);
+        registerDevice(Curtain.class, Curtain::new);
+        registerDevice(DoorLock.class, DoorLock::new);
+        registerDevice(GasValve.class, GasValve::new);
+        registerDevice(HouseMeter.class, HouseMeter::new);
+        registerDevice(Light.class, Light::new);
+        registerDevice(PowerSaver.class, PowerSaver::new);
+        registerDevice(Thermostat.class, Thermostat::new);
+        registerDevice(Ventilation.class, Ventilation::new);
+    }
+
+    private DeviceFactory() {}
+
+    public static void registerDevice(Class<?> deviceClass, DeviceBuilder builder) {
+        sDeviceBuilders.put(deviceClass, builder);
+    }
+
+    public static DeviceBuilder getDeviceBuilder(Class<?> deviceClass) {
+        DeviceBuilder builder = sDeviceBuilders.get(deviceClass);
+        if (builder == null) {
+            // Fallback for device classes not registered, look up the constructor
+            // only once and keep it as builder for next creation.
+            builder = createReflectiveBuilder(deviceClass);
+            if (builder != null) sDeviceBuilders.put(deviceClass, builder);
+        }
+        return builder;
+    }
+
+    public static HomeDevice createDevice(MainContext mainContext, ContextBuilder contextBuilder, Map defaultProps) {
+        if (contextBuilder == null) return null;
+
+        final DeviceContextBase deviceContext = contextBuilder.build(mainContext, defaultProps);
+        if (deviceContext == null) return null;
+
+        final DeviceBuilder deviceBuilder = getDeviceBuilder(deviceContext.getDeviceClass());
+        if (deviceBuilder == null) return null;
+
+        return deviceBuilder.build(deviceContext);
+    }
+
+    private static DeviceBuilder createReflectiveBuilder(Class<?> deviceClass) {
+        final Constructor constructor;
+        try {
+            constructor = deviceClass.getConstructor(DeviceContextBase.class);
+        } catch (NoSuchMethodException e) {
+            Log.e(TAG, "no constructor of " + deviceClass.getName());
+            return null;
+        }
+
+        return (deviceContext) -> {
+            try {
+                return (HomeDevice) constructor.newInstance(deviceContext);
+            } catch (Exception e) {
+                Log.e(TAG, e.getMessage());
+                return null;
+            }
+        };
+    }
+}
@@ -19,14 +19,15 @@ package kr.or.kashi.hde;
 
 import android.os.Handler;
 import android.os.Looper;
-import android.util.ArraySet;
+import android.os.SystemClock;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.util.Pair;
 
 import java.lang.ref.WeakReference;
 import java.net.InetAddress;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ import java.util.concurrent.Executor;
 
 import kr.or.kashi.hde.base.BasicPropertyMap;
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.base.PropertyMap;
 import kr.or.kashi.hde.base.PropertyTask;
 import kr.or.kashi.hde.base.PropertyValue;
@@ -127,6 +129,8 @@ public class HomeDevice {
     /** Property of on/off state  */
     @PropertyDef(valueClass=Boolean.class)
     public static final String PROP_ONOFF       = PROP_PREFIX + "onoff";
+    /** Typed key of {@link #PROP_ONOFF} */
+    public static final PropKey.Bool KEY_ONOFF  = new PropKey.Bool(PROP_ONOFF);
 
     /** Property of error code that is defined in {@link Error} */
     @PropertyDef(valueClass=Error.class)
@@ -144,8 +148,8 @@ public class HomeDevice {
     @PropertyDef(valueClass=Boolean.class)
     public static final String PROP_IS_SLAVE    = PROP_PREFIX + "is_salve";
 
-    private static Map<Class, Map<String, PropertyValue>> sDefaultPropertyMap
-            = new ConcurrentHashMap<>();
+    /** Default minimum interval (ms) between control requests of a device */
+    public static final long DEFAULT_CONTROL_INTERVAL = 100L;
 
     private final DeviceContextBase mDeviceContext;
 
@@ -153,9 +157,13 @@ public class HomeDevice {
     private final Executor mHandlerExecutor;
     private final Object mLock = new Object();
     private DeviceContextListenerImpl mDeviceListener = null;
-    private final List<Pair<Callback,Executor>> mCallbacks = new ArrayList<>();
+    // Immutable snapshot that is replaced on each change, so dispatching reads it without lock.
+    private volatile List<Pair<Callback,Executor>> mCallbacks = Collections.emptyList();
     private final Map<String, PropertyValue> mStagedProperties = new ConcurrentHashMap<>();
     private final Runnable mCommitPropsRunnable = this::commitStagedProperties;
+    private volatile long mControlInterval = DEFAULT_CONTROL_INTERVAL;
+    private volatile long mLastCommitTime = 0L;
+    private final Map<String, PropertyValue> mPendingChanges = new ArrayMap<>();
 
     public HomeDevice(DeviceContextBase deviceContext) {
         mDeviceContext = deviceContext;
@@ -253,7 +261,11 @@ public class HomeDevice {
                 mDeviceListener = new DeviceContextListenerImpl(this);
                 mDeviceContext.setListener(mDeviceListener);
             }
-            mCallbacks.add(Pair.create(callback, executor));
+            final Pair<Callback,Executor> newCallback = Pair.create(callback, executor);
+            if (mCallbacks.contains(newCallback)) return;
+            final List<Pair<Callback,Executor>> callbacks = new ArrayList<>(mCallbacks);
+            callbacks.add(newCallback);
+            mCallbacks = Collections.unmodifiableList(callbacks);
         }
     }
 
@@ -263,13 +275,15 @@ public class HomeDevice {
      */
     public void removeCallback(Callback callback) {
         synchronized (mLock) {
-            Iterator it = mCallbacks.iterator();
+            final List<Pair<Callback,Executor>> callbacks = new ArrayList<>(mCallbacks);
+            Iterator it = callbacks.iterator();
             while (it.hasNext()) {
                 Pair<Callback,Executor> cb = (Pair<Callback,Executor>) it.next();
                 if (cb.first == callback) {
                     it.remove();
                 }
             }
+            mCallbacks = Collections.unmodifiableList(callbacks);
             if (mCallbacks.isEmpty() && mDeviceListener != null) {
                 mDeviceContext.setListener(null);
                 mDeviceListener = null;
@@ -289,6 +303,31 @@ public class HomeDevice {
         return prop.getValue();
     }
 
+    /** Get current value of a boolean property without boxing. */
+    public boolean getBoolean(PropKey.Bool key) {
+        return mDeviceContext.getReadPropertyMap().getBoolean(key);
+    }
+
+    /** Get current value of an integer property without boxing. */
+    public int getInt(PropKey.Int key) {
+        return mDeviceContext.getReadPropertyMap().getInt(key);
+    }
+
+    /** Get current value of a long property without boxing. */
+    public long getLong(PropKey.Long key) {
+        return mDeviceContext.getReadPropertyMap().getLong(key);
+    }
+
+    /** Get current value of a float property without boxing. */
+    public float getFloat(PropKey.Float key) {
+        return mDeviceContext.getReadPropertyMap().getFloat(key);
+    }
+
+    /** Get current value of a double property without boxing. */
+    public double getDouble(PropKey.Double key) {
+        return mDeviceContext.getReadPropertyMap().getDouble(key);
+    }
+
     /**
      * Set value to a property.
      *
@@ -315,10 +354,27 @@ public class HomeDevice {
         return mDeviceContext.getReadPropertyMap();
     }
 
+    /**
+     * Set the minimum interval between control requests. Properties set in the
+     * interval are coalesced so only the latest values are requested at once,
+     * and the last values are always requested after the interval.
+     *
+     * @param interval Interval in milliseconds, or 0 to request as soon as possible.
+     */
+    public void setControlInterval(long interval) {
+        mControlInterval = Math.max(0L, interval);
+    }
+
+    public long getControlInterval() {
+        return mControlInterval;
+    }
+
     public void setProperty(PropertyValue prop) {
         mStagedProperties.put(prop.getName(), prop);
         if (!mHandler.hasCallbacks(mCommitPropsRunnable)) {
-            mHandler.postDelayed(mCommitPropsRunnable, 1 /* Minimum delay */);
+            final long nextTime = mLastCommitTime + mControlInterval;
+            final long delay = Math.max(1 /* Minimum delay */, nextTime - SystemClock.uptimeMillis());
+            mHandler.postDelayed(mCommitPropsRunnable, delay);
         }
     }
 
@@ -334,8 +390,13 @@ public class HomeDevice {
 
     private void commitStagedProperties() {
         if (mStagedProperties.size() > 0) {
-            mDeviceContext.setProperty(new ArrayList<>(mStagedProperties.values()));
-            mStagedProperties.clear();
+            final List<PropertyValue> props = new ArrayList<>(mStagedProperties.values());
+            for (PropertyValue prop : props) {
+                // Keep the value if set again in the meantime, it'll be committed next time.
+                mStagedProperties.remove(prop.getName(), prop);
+            }
+            mLastCommitTime = SystemClock.uptimeMillis();
+            mDeviceContext.setProperty(props);
         }
     }
 
@@ -362,27 +423,50 @@ public class HomeDevice {
     }
 
     public void onPropertyChanged(List<PropertyValue> props) {
-        Collection<Pair<Callback,Executor>> callbacks;
+        if (mCallbacks.isEmpty()) return;
+
+        synchronized (mLock) {
+            // Merge into the changes not delivered yet, later values win.
+            final boolean wasPending = !mPendingChanges.isEmpty();
+            for (PropertyValue prop : props) {
+                mPendingChanges.put(prop.getName(), prop);
+            }
+            if (wasPending) return;
+        }
+
+        PropertyChangeBatcher.getInstance().schedule(this);
+    }
+
+    /** Delivers all the changes merged until now to callbacks at once. */
+    void deliverPendingChanges() {
+        final PropertyMap propMap;
         synchronized (mLock) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
+            if (mPendingChanges.isEmpty()) return;
+            propMap = new ReadOnlyPropertyMap(mPendingChanges.values());
+            mPendingChanges.clear();
         }
 
-        PropertyMap propMap = new ReadOnlyPropertyMap(props);
+        final List<Pair<Callback,Executor>> callbacks = mCallbacks;
+        final boolean onMainThread = (Looper.myLooper() == mHandler.getLooper());
 
-        for (Pair<Callback,Executor> cb : callbacks) {
-            cb.second.execute(() -> cb.first.onPropertyChanged(this, propMap));
+        for (int i = 0; i < callbacks.size(); i++) {
+            final Pair<Callback,Executor> cb = callbacks.get(i);
+            if (onMainThread && cb.second == mHandlerExecutor) {
+                // Already on the thread of the executor, no need to post again.
+                cb.first.onPropertyChanged(this, propMap);
+            } else {
+                cb.second.execute(() -> cb.first.onPropertyChanged(this, propMap));
+            }
         }
     }
 
     public void onErrorOccurred(int error) {
-        Collection<Pair<Callback,Executor>> callbacks;
-        synchronized (mLock) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
+        // Deliver pending changes ahead to keep the order of events.
+        deliverPendingChanges();
 
-        for (Pair<Callback,Executor> cb : callbacks) {
+        final List<Pair<Callback,Executor>> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final Pair<Callback,Executor> cb = callbacks.get(i);
             cb.second.execute(() -> cb.first.onErrorOccurred(this, error));
         }
     }
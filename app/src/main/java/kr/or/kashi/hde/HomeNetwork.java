@@ -20,7 +20,6 @@ package kr.or.kashi.hde;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.ArraySet;
 import android.util.Log;
 
 import java.io.EOFException;
@@ -30,14 +29,13 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import kr.or.kashi.hde.base.BasicPropertyMap;
 import kr.or.kashi.hde.base.PropertyMap;
 import kr.or.kashi.hde.base.PropertyValue;
 import kr.or.kashi.hde.session.NetworkSession;
-import kr.or.kashi.hde.ksx4506_kd.KDMainContext;
 import kr.or.kashi.hde.stream.StreamProcessor;
 
 public class HomeNetwork {
@@ -48,15 +46,19 @@ public class HomeNetwork {
     private final Context mContext;
     private final Handler mEventHandler;
     private final boolean mIsSlaveMode;
+    private final String mName;
+    private final String mLogPrefix;
 
     private final Object mLock = new Object();
-    private final ArraySet<Callback> mCallbacks = new ArraySet<>();
+    // Immutable snapshot that is replaced on each change, so dispatching reads it without lock.
+    private volatile List<Callback> mCallbacks = Collections.emptyList();
 
     private final MainContext mMainContext;
     private final StreamProcessor mStreamProcessor;
     private final DeviceDiscovery mDeviceDiscovery;
     private final DeviceStatePoller mDeviceStatePoller;
     private NetworkSession mNetworkSession;
+    private DeviceChangeStream mChangeStream;
 
     private int mRetryCount = 0;
     private Runnable mStreamErrorRunable = this::retryStart;
@@ -70,22 +72,41 @@ public class HomeNetwork {
     }
 
     public HomeNetwork(Context context, boolean isSlaveMode) {
+        this(context, ProtocolRegistry.DEFAULT_PROTOCOL, isSlaveMode);
+    }
+
+    /**
+     * Creates a network of the protocol registered in {@link ProtocolRegistry}.
+     * @param protocolId The id of protocol.
+     */
+    public HomeNetwork(Context context, String protocolId, boolean isSlaveMode) {
+        this(context, protocolId, isSlaveMode, null, null);
+    }
+
+    public HomeNetwork(Context context, boolean isSlaveMode, String name, Looper rxLooper) {
+        this(context, ProtocolRegistry.DEFAULT_PROTOCOL, isSlaveMode, name, rxLooper);
+    }
+
+    /**
+     * Creates a network that can run side by side with other networks.
+     * @param protocolId The id of protocol registered in {@link ProtocolRegistry}.
+     * @param name The name to distinguish this network (e.g. port name), or {@code null}.
+     * @param rxLooper The looper where received packets are parsed, or {@code null} for main looper.
+     */
+    public HomeNetwork(Context context, String protocolId, boolean isSlaveMode, String name, Looper rxLooper) {
         mContext = context;
         mEventHandler = new Handler(Looper.getMainLooper());
         mIsSlaveMode = isSlaveMode;
+        mName = name;
+        mLogPrefix = (name != null) ? "[" + name + "]" : "";
 
-        mMainContext = createMainContext(context, isSlaveMode);
-        mStreamProcessor = new StreamProcessor(context, mEventHandler, mStreamErrorRunable);
+        mMainContext = ProtocolRegistry.createMainContext(protocolId, context, isSlaveMode);
+        mMainContext.setRxLooper(rxLooper);
+        mStreamProcessor = new StreamProcessor(context, mEventHandler, mStreamErrorRunable, name);
         mDeviceDiscovery = mMainContext.getDeviceDiscovery();
         mDeviceStatePoller = new DeviceStatePoller();
     }
 
-    private MainContext createMainContext(Context context, boolean isSlaveMode) {
-        // return new KSMainContext(context);     // standard (2016)
-        // return new KSMainContext2(context);    // extended (2022)
-        return new KDMainContext(context, isSlaveMode);     // non-standard
-    }
-
     public boolean isRunning() {
         return mStreamProcessor.isRunning();
     }
@@ -94,18 +115,51 @@ public class HomeNetwork {
         return mIsSlaveMode;
     }
 
+    public String getName() {
+        return mName;
+    }
+
     public void addCallback(HomeNetwork.Callback callback) {
         synchronized (mLock) {
-            mCallbacks.add(callback);
+            if (mCallbacks.contains(callback)) return;
+            final List<Callback> callbacks = new ArrayList<>(mCallbacks);
+            callbacks.add(callback);
+            mCallbacks = Collections.unmodifiableList(callbacks);
         }
     }
 
     public void removeCallback(HomeNetwork.Callback callback) {
         synchronized (mLock) {
-            mCallbacks.remove(callback);
+            if (!mCallbacks.contains(callback)) return;
+            final List<Callback> callbacks = new ArrayList<>(mCallbacks);
+            callbacks.remove(callback);
+            mCallbacks = Collections.unmodifiableList(callbacks);
         }
     }
 
+    /**
+     * Returns the stream of property changes of all the devices in this network,
+     * that is created at first call. Use this instead of registering callback
+     * to every device when observing all the devices.
+     */
+    public DeviceChangeStream getChangeStream() {
+        synchronized (mLock) {
+            if (mChangeStream == null) {
+                mChangeStream = new DeviceChangeStream();
+                mMainContext.setChangeStream(mChangeStream);
+            }
+            return mChangeStream;
+        }
+    }
+
+    /**
+     * Returns the monitor of time taken to respond to requests, that is used
+     * only in slave mode.
+     */
+    public SlaveResponseMonitor getSlaveResponseMonitor() {
+        return mMainContext.getSlaveResponseMonitor();
+    }
+
     public DeviceStatePoller getDeviceStatePoller() {
         return mDeviceStatePoller;
     }
@@ -120,7 +174,7 @@ public class HomeNetwork {
         }
         mNetworkSession = session;
 
-        Log.d(TAG, " network is starting");
+        Log.d(TAG, mLogPrefix + " network is starting");
 
         boolean res = mStreamProcessor.startStream(session);
         if (!res) {
@@ -136,7 +190,7 @@ public class HomeNetwork {
 
         mDeviceStatePoller.start(true /* repeative */, polleeList);
 
-        Log.d(TAG, " network has been started");
+        Log.d(TAG, mLogPrefix + " network has been started");
 
         dispatchNetworkStarted();
 
@@ -156,7 +210,7 @@ public class HomeNetwork {
         mMainContext.detachStream();
         mStreamProcessor.stopStream();
 
-        Log.d(TAG, " network has been stopped");
+        Log.d(TAG, mLogPrefix + " network has been stopped");
 
         dispatchNetworkStopped();
     }
@@ -243,45 +297,33 @@ public class HomeNetwork {
     }
 
     public void dispatchNetworkStarted() {
-        Collection<HomeNetwork.Callback> callbacks;
-        synchronized (mLock) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-        for (HomeNetwork.Callback cb : callbacks) {
+        final List<HomeNetwork.Callback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeNetwork.Callback cb = callbacks.get(i);
             mEventHandler.post(() -> cb.onNetworkStarted());
         }
     }
 
     public void dispatchNetworkStopped() {
-        Collection<HomeNetwork.Callback> callbacks;
-        synchronized (mLock) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-        for (HomeNetwork.Callback cb : callbacks) {
+        final List<HomeNetwork.Callback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeNetwork.Callback cb = callbacks.get(i);
             mEventHandler.post(() -> cb.onNetworkStopped(0));
         }
     }
 
     public void dispatchDeviceAdded(final List<HomeDevice> devices) {
-        Collection<HomeNetwork.Callback> callbacks;
-        synchronized (mLock) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-        for (HomeNetwork.Callback cb : callbacks) {
+        final List<HomeNetwork.Callback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeNetwork.Callback cb = callbacks.get(i);
             mEventHandler.post(() -> cb.onDeviceAdded(devices));
         }
     }
 
     public void dispatchDeviceRemoved(final List<HomeDevice> devices) {
-        Collection<HomeNetwork.Callback> callbacks;
-        synchronized (mLock) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-        for (HomeNetwork.Callback cb : callbacks) {
+        final List<HomeNetwork.Callback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeNetwork.Callback cb = callbacks.get(i);
             mEventHandler.post(() -> cb.onDeviceRemoved(devices));
         }
     }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde;
+
+import android.content.Context;
+import android.os.HandlerThread;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import kr.or.kashi.hde.session.NetworkSession;
+
+/**
+ * Runs several {@link HomeNetwork}s side by side over each own port, so that
+ * the buses of multiple wallpads can be emulated at the same time. Every network
+ * has its own stream threads (RX/TX) and parsing thread, and this group provides
+ * the aggregated view of devices of all the networks.
+ */
+public class HomeNetworkGroup {
+    private static final String TAG = HomeNetworkGroup.class.getSimpleName();
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    private final Map<String, Entry> mEntries = new ArrayMap<>();
+    private final List<HomeNetwork.Callback> mCallbacks = new ArrayList<>();
+
+    private static class Entry {
+        final HomeNetwork network;
+        final NetworkSession session;
+        final HandlerThread rxThread;
+
+        Entry(HomeNetwork network, NetworkSession session, HandlerThread rxThread) {
+            this.network = network;
+            this.session = session;
+            this.rxThread = rxThread;
+        }
+    }
+
+    public HomeNetworkGroup(Context context) {
+        mContext = context;
+    }
+
+    public HomeNetwork createNetwork(String name, boolean isSlaveMode, NetworkSession session) {
+        return createNetwork(name, ProtocolRegistry.DEFAULT_PROTOCOL, isSlaveMode, session);
+    }
+
+    /**
+     * Creates new network with its own parsing thread and adds it to this group.
+     * @param name Unique name of network such as name of port.
+     * @param protocolId The id of protocol registered in {@link ProtocolRegistry}.
+     * @param isSlaveMode Whether the network works as slave.
+     * @param session The session of port that the network is running over.
+     * @return New network, or {@code null} if the name is already used.
+     */
+    public HomeNetwork createNetwork(String name, String protocolId, boolean isSlaveMode, NetworkSession session) {
+        synchronized (mLock) {
+            if (mEntries.containsKey(name)) {
+                Log.e(TAG, "network " + name + " already exists");
+                return null;
+            }
+
+            final HandlerThread rxThread = new HandlerThread(TAG + "-" + name);
+            rxThread.start();
+
+            final HomeNetwork network = new HomeNetwork(mContext, protocolId, isSlaveMode, name, rxThread.getLooper());
+            for (HomeNetwork.Callback cb : mCallbacks) {
+                network.addCallback(cb);
+            }
+
+            mEntries.put(name, new Entry(network, session, rxThread));
+            return network;
+        }
+    }
+
+    /**
+     * Stops and removes the network of given name from this group.
+     */
+    public void removeNetwork(String name) {
+        final Entry entry;
+        synchronized (mLock) {
+            entry = mEntries.remove(name);
+        }
+        if (entry == null) return;
+
+        entry.network.stop();
+        for (HomeNetwork.Callback cb : getCallbacks()) {
+            entry.network.removeCallback(cb);
+        }
+        entry.rxThread.quitSafely();
+    }
+
+    public void removeAllNetworks() {
+        for (String name : getNetworkNames()) {
+            removeNetwork(name);
+        }
+    }
+
+    public HomeNetwork getNetwork(String name) {
+        synchronized (mLock) {
+            final Entry entry = mEntries.get(name);
+            return (entry != null) ? entry.network : null;
+        }
+    }
+
+    public List<String> getNetworkNames() {
+        synchronized (mLock) {
+            return new ArrayList<>(mEntries.keySet());
+        }
+    }
+
+    public List<HomeNetwork> getAllNetworks() {
+        synchronized (mLock) {
+            final List<HomeNetwork> networks = new ArrayList<>(mEntries.size());
+            for (Entry entry : mEntries.values()) {
+                networks.add(entry.network);
+            }
+            return networks;
+        }
+    }
+
+    /**
+     * Starts all the networks over each own session.
+     * @return {@code true} if all the networks have been started.
+     */
+    public boolean start() {
+        boolean allStarted = true;
+        for (Entry entry : getEntries()) {
+            if (!entry.network.start(entry.session)) {
+                Log.e(TAG, "can't start network " + entry.network.getName());
+                allStarted = false;
+            }
+        }
+        return allStarted;
+    }
+
+    public void stop() {
+        for (Entry entry : getEntries()) {
+            entry.network.stop();
+        }
+    }
+
+    public boolean isRunning() {
+        for (Entry entry : getEntries()) {
+            if (entry.network.isRunning()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Registers callback to all the networks including ones created later.
+     */
+    public void addCallback(HomeNetwork.Callback callback) {
+        synchronized (mLock) {
+            mCallbacks.add(callback);
+            for (Entry entry : mEntries.values()) {
+                entry.network.addCallback(callback);
+            }
+        }
+    }
+
+    public void removeCallback(HomeNetwork.Callback callback) {
+        synchronized (mLock) {
+            mCallbacks.remove(callback);
+            for (Entry entry : mEntries.values()) {
+                entry.network.removeCallback(callback);
+            }
+        }
+    }
+
+    /**
+     * Returns the network that the device belongs to.
+     */
+    public HomeNetwork getNetworkOf(HomeDevice device) {
+        for (Entry entry : getEntries()) {
+            if (entry.network.getDevice(device.getAddress()) == device) {
+                return entry.network;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the aggregated list of devices of all the networks.
+     */
+    public List<HomeDevice> getAllDevices() {
+        final List<HomeDevice> devices = new ArrayList<>();
+        for (Entry entry : getEntries()) {
+            devices.addAll(entry.network.getAllDevices());
+        }
+        return devices;
+    }
+
+    /**
+     * Returns all the devices of given address over the networks, since same
+     * address can be used in each bus.
+     */
+    public List<HomeDevice> getDevices(String address) {
+        final List<HomeDevice> devices = new ArrayList<>();
+        for (Entry entry : getEntries()) {
+            final HomeDevice device = entry.network.getDevice(address);
+            if (device != null) devices.add(device);
+        }
+        return devices;
+    }
+
+    private List<Entry> getEntries() {
+        synchronized (mLock) {
+            return new ArrayList<>(mEntries.values());
+        }
+    }
+
+    private List<HomeNetwork.Callback> getCallbacks() {
+        synchronized (mLock) {
+            return new ArrayList<>(mCallbacks);
+        }
+    }
+}
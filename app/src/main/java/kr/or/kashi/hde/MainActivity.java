@@ -74,7 +74,6 @@ public class MainActivity extends AppCompatActivity {
 
     private static final String PORT_TYPE_INTERNAL = "INTERNAL";
     private static final String PORT_TYPE_USB = "USB";
-    private static final String PROTOCOL_TYPE_KSX4506 = "KS X 4506";
     private static final String MODE_TYPE_MASTER = "MASTER";
     private static final String MODE_TYPE_SLAVE = "SLAVE";
 
@@ -90,6 +89,7 @@ public class MainActivity extends AppCompatActivity {
     private Spinner mProtocalsSpinner;
     private Spinner mModesSpinner;
 
+    private HomeNetworkGroup mHomeNetworkGroup;
     private HomeNetwork mHomeNetwork;
 
     private BroadcastReceiver mUsbPermissionReceiver = new BroadcastReceiver() {
@@ -159,8 +159,7 @@ public class MainActivity extends AppCompatActivity {
         mPortsSpinner.setSelection(LocalPreferences.getInt(Pref.PORT_INDEX));
         ((ArrayAdapter)mPortsSpinner.getAdapter()).setDropDownViewResource(android.R.layout.simple_spinner_item);
 
-        List<String> protocolTypes = new ArrayList<>();
-        protocolTypes.add(PROTOCOL_TYPE_KSX4506);
+        List<String> protocolTypes = ProtocolRegistry.getProtocolIds();
         mProtocalsSpinner = findViewById(R.id.protocols_spinner);
         mProtocalsSpinner.setAdapter(new ArrayAdapter<>(this, R.layout.spinner_item_white, protocolTypes));
         mProtocalsSpinner.setSelection(LocalPreferences.getInt(Pref.PROTOCOL_INDEX));
@@ -227,6 +226,7 @@ public class MainActivity extends AppCompatActivity {
         setStateText("STARTING...");
 
         final boolean isSlaveMode = MODE_TYPE_SLAVE.equals(mModesSpinner.getSelectedItem().toString());
+        final String protocolId = mProtocalsSpinner.getSelectedItem().toString();
 
         NetworkSession networkSession = null;
 
@@ -273,8 +273,12 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        mHomeNetwork = new HomeNetwork(this, isSlaveMode);
-        boolean res = mHomeNetwork.start(networkSession);
+        // Each network of the group parses packets in its own thread, not in main.
+        if (mHomeNetworkGroup == null) mHomeNetworkGroup = new HomeNetworkGroup(this);
+        mHomeNetworkGroup.removeAllNetworks();
+        final String portName = mPortsSpinner.getSelectedItem().toString();
+        mHomeNetwork = mHomeNetworkGroup.createNetwork(portName, protocolId, isSlaveMode, networkSession);
+        boolean res = mHomeNetworkGroup.start();
         if (!res) {
             setStateText("ERROR: CAN'T START NETWORK!");
             return;
@@ -298,8 +302,8 @@ public class MainActivity extends AppCompatActivity {
     private void stopEmulator() {
         setStateText("STOPPED");
 
-        if (mHomeNetwork != null) {
-            mHomeNetwork.stop();
+        if (mHomeNetworkGroup != null) {
+            mHomeNetworkGroup.removeAllNetworks(); // Stops them and their threads
         }
 
         LocalPreferences.putBoolean(Pref.LAST_RUNNING, false);
@@ -20,13 +20,17 @@ package kr.or.kashi.hde;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.lang.reflect.Constructor;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import kr.or.kashi.hde.base.PropertyValue;
+import kr.or.kashi.hde.session.SlaveResponder;
 import kr.or.kashi.hde.stream.StreamProcessor;
 import kr.or.kashi.hde.util.DebugLog;
 import kr.or.kashi.hde.util.Utils;
@@ -38,11 +42,17 @@ public abstract class MainContext extends DeviceManager
 
     private final Context mContext;
     protected final boolean mIsSlaveMode;
-    private final Handler mRxEventHandler;
+    private Handler mRxEventHandler;
     private final ByteBuffer mRxByteBuffer;
     private final Runnable mProcessBufferRunnable = this::onProcessBuffer;
     private final Runnable mClearBufferRunnable = this::onClearBuffer;
     protected StreamProcessor mStreamProcessor;
+    private volatile DeviceChangeStream mChangeStream;
+    private final AtomicInteger mTxCount = new AtomicInteger(); // Count of packets sent or scheduled
+    private boolean mReleaseLineRequested = false;  // Guarded by mRxByteBuffer
+    private final SlaveResponseMonitor mResponseMonitor = new SlaveResponseMonitor();
+    private volatile long mParseStartTime = 0L;     // System.nanoTime() of last parsing
+    private volatile long mParseEndTime = 0L;
 
     public MainContext(Context context, boolean isSlaveMode) {
         super(context, null);
@@ -52,12 +62,41 @@ public abstract class MainContext extends DeviceManager
         mRxByteBuffer = ByteBuffer.allocate(RX_BUFFER_SIZE);
     }
 
+    /**
+     * Changes the looper where received bytes are parsed into packets. By default,
+     * packets are parsed in main looper (except slave mode that parses them in the
+     * thread of receiving). The device contexts also run their tasks in this looper,
+     * so this should be called before adding any device and attaching to stream.
+     */
+    public void setRxLooper(Looper looper) {
+        if (mStreamProcessor != null) {
+            Log.w(TAG, "can't change rx looper while attached to stream");
+            return;
+        }
+        if (!getAllDevices().isEmpty()) {
+            Log.w(TAG, "can't change rx looper after devices have been added");
+            return;
+        }
+        mRxEventHandler = new Handler((looper != null) ? looper : Looper.getMainLooper());
+    }
+
+    /** The looper where packets are parsed and device contexts run their tasks. */
+    public Looper getRxLooper() {
+        return mRxEventHandler.getLooper();
+    }
+
     public void attachStream(StreamProcessor streamProcessor) {
         mRxByteBuffer.clear();
 
         mStreamProcessor = streamProcessor;
         mStreamProcessor.addClient(this);
 
+        if (mIsSlaveMode) {
+            final SlaveResponder responder = getSlaveResponder();
+            if (responder != null) mStreamProcessor.setSlaveResponder(responder);
+            mStreamProcessor.setResponseTimeListener(this::onSlaveResponseWritten);
+        }
+
         for (HomeDevice device : getAllDevices()) {
             device.dc().onAttachedToStream();
         }
@@ -71,6 +110,8 @@ public abstract class MainContext extends DeviceManager
         }
 
         mRxEventHandler.removeCallbacksAndMessages(null);
+        mStreamProcessor.setSlaveResponder(null);
+        mStreamProcessor.setResponseTimeListener(null);
         mStreamProcessor.removeClient(this);
         mStreamProcessor = null;
 
@@ -78,16 +119,63 @@ public abstract class MainContext extends DeviceManager
         mRxByteBuffer.clear();
     }
 
-    public HomeDevice createDevice(Map defaultProps) {
-        Class<?> deviceContextClass = getContextClass(defaultProps);
-        if (deviceContextClass == null) return null;
+    /**
+     * Override it to answer requests in the thread of port in slave mode, see
+     * {@link SlaveResponder}. Any request answered there still comes to
+     * {@link #processPacket(byte[], int)} as well.
+     */
+    protected SlaveResponder getSlaveResponder() {
+        return null;
+    }
 
+    /** Returns the monitor of time taken to respond in slave mode. */
+    public SlaveResponseMonitor getSlaveResponseMonitor() {
+        return mResponseMonitor;
+    }
+
+    private void onSlaveResponseWritten(byte[] response, long rxTime, long txTime) {
+        long parseStartTime = mParseStartTime;
+        long parseEndTime = mParseEndTime;
+        if (parseStartTime < rxTime) {
+            // Responded before the request is parsed.
+            parseStartTime = 0L;
+            parseEndTime = 0L;
+        } else if (parseEndTime < parseStartTime) {
+            // Written while still parsing.
+            parseEndTime = txTime;
+        }
+
+        mResponseMonitor.record(getResponseDeviceType(response), getResponseCommand(response),
+                rxTime, parseStartTime, parseEndTime, txTime);
+    }
+
+    /** Override it to tell the type of device that the response is from. */
+    protected String getResponseDeviceType(byte[] response) {
+        return "unknown";
+    }
+
+    /** Override it to tell the command of the response. */
+    protected int getResponseCommand(byte[] response) {
+        return 0;
+    }
+
+    /** Sets the stream where the property changes of all the devices are published. */
+    public void setChangeStream(DeviceChangeStream changeStream) {
+        mChangeStream = changeStream;
+    }
+
+    /** Called when properties of a device has been committed. */
+    public void onDevicePropertyChanged(DeviceContextBase deviceContext, List<PropertyValue> props) {
+        final DeviceChangeStream changeStream = mChangeStream;
+        if (changeStream != null) {
+            final String address = deviceContext.getAddress().getDeviceAddress();
+            changeStream.publish(address, props, SystemClock.uptimeMillis());
+        }
+    }
+
+    public HomeDevice createDevice(Map defaultProps) {
         try {
-            Constructor contextBuilder = deviceContextClass.getConstructor(MainContext.class, Map.class);
-            DeviceContextBase deviceContext = (DeviceContextBase) contextBuilder.newInstance(this, defaultProps);
-            Class<?> deviceClass = deviceContext.getDeviceClass();;
-            Constructor deviceBuilder = deviceClass.getConstructor(DeviceContextBase.class);
-            return (HomeDevice) deviceBuilder.newInstance(deviceContext);
+            return DeviceFactory.createDevice(this, getContextBuilder(defaultProps), defaultProps);
         } catch (Exception e) {
             Log.e(TAG, e.getMessage());
             return null;
@@ -122,6 +210,7 @@ public abstract class MainContext extends DeviceManager
         synchronized (mRxByteBuffer) {
             if (length > mRxByteBuffer.remaining()) {
                 Log.w(TAG, "clear buffer by overflow! " + (mRxByteBuffer.position() + length));
+                onRxBufferCleared(mRxByteBuffer.array(), 0, mRxByteBuffer.position());
                 mRxByteBuffer.clear();
             }
 
@@ -143,6 +232,10 @@ public abstract class MainContext extends DeviceManager
 
     private void onProcessBuffer() {
         synchronized (mRxByteBuffer) {
+            if (mIsSlaveMode) mParseStartTime = System.nanoTime();
+            final int txCount = mTxCount.get();
+            mReleaseLineRequested = false;
+
             mRxByteBuffer.flip(); // change to read mode
             mRxByteBuffer.mark(); // mark current buffer's position
 
@@ -159,13 +252,39 @@ public abstract class MainContext extends DeviceManager
             }
 
             mRxByteBuffer.compact(); // change to write mode
+
+            if (mIsSlaveMode) mParseEndTime = System.nanoTime();
+
+            // Release the line only if nothing has been sent for the received
+            // bytes, otherwise the response releases it as soon as it's written.
+            if (mReleaseLineRequested && txCount == mTxCount.get() && mStreamProcessor != null) {
+                mStreamProcessor.releaseLine();
+            }
+            mReleaseLineRequested = false;
         }
     }
 
+    /**
+     * Requests to release the line of port without responding, in slave mode
+     * when the packet being parsed doesn't need any response. The line is
+     * released after all the received bytes have been parsed.
+     */
+    protected void requestReleaseLine() {
+        if (mIsSlaveMode) mReleaseLineRequested = true;
+    }
+
+    /**
+     * Called with the received bytes that haven't been parsed yet, right before
+     * they're thrown away. The bytes being appended are not included.
+     */
+    protected void onRxBufferCleared(byte[] data, int offset, int length) {
+    }
+
     private void onClearBuffer() {
         synchronized (mRxByteBuffer) {
             int remaining = mRxByteBuffer.remaining();
             if (remaining > 0) {
+                onRxBufferCleared(mRxByteBuffer.array(), 0, mRxByteBuffer.position());
                 mRxByteBuffer.clear();
                 Log.w(TAG, "clear incomplete remaining data (" + remaining + ")");
             }
@@ -174,6 +293,7 @@ public abstract class MainContext extends DeviceManager
 
     public void sendPacket(DeviceContextBase base, HomePacket packet) {
         if (mStreamProcessor != null) {
+            mTxCount.incrementAndGet();
             mStreamProcessor.sendPacket(packet);
             printTxLog(packet);
         }
@@ -186,6 +306,7 @@ public abstract class MainContext extends DeviceManager
 
         boolean scheduled = mStreamProcessor.schedulePacket(schedule);
         if (scheduled) {
+            mTxCount.incrementAndGet();
             printTxLog(schedule.getPacket());
         }
 
@@ -207,7 +328,7 @@ public abstract class MainContext extends DeviceManager
     }
 
     // Override it on every derived classes and implement it according to specific protocols.
-    public abstract Class<?> getContextClass(Map defaultProps);
+    public abstract DeviceFactory.ContextBuilder getContextBuilder(Map defaultProps);
     public abstract DeviceDiscovery getDeviceDiscovery();
     public abstract HomePacket createPacket();
     public abstract boolean parsePacket(ByteBuffer buffer) throws BufferUnderflowException;
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.ArraySet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Aggregates property changes of devices and delivers them on the main thread
+ * once per frame tick, so that a response updating many devices at once makes
+ * only one message instead of one per device and callback.
+ */
+final class PropertyChangeBatcher {
+    /** Interval of delivery that is about a frame of display */
+    static final long DELIVERY_INTERVAL = 16L;
+
+    private static final PropertyChangeBatcher sInstance = new PropertyChangeBatcher();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Object mLock = new Object();
+    private final Set<HomeDevice> mPendingDevices = new ArraySet<>();
+    private final List<HomeDevice> mDeliveringDevices = new ArrayList<>();
+    private final Runnable mDeliverRunnable = this::deliver;
+    private boolean mScheduled = false;
+
+    static PropertyChangeBatcher getInstance() {
+        return sInstance;
+    }
+
+    private PropertyChangeBatcher() {}
+
+    /** Schedules delivery of pending changes of the device at next tick. */
+    void schedule(HomeDevice device) {
+        synchronized (mLock) {
+            mPendingDevices.add(device);
+            if (!mScheduled) {
+                mScheduled = true;
+                mHandler.postDelayed(mDeliverRunnable, DELIVERY_INTERVAL);
+            }
+        }
+    }
+
+    private void deliver() {
+        synchronized (mLock) {
+            mDeliveringDevices.addAll(mPendingDevices);
+            mPendingDevices.clear();
+            mScheduled = false;
+        }
+
+        for (int i = 0; i < mDeliveringDevices.size(); i++) {
+            mDeliveringDevices.get(i).deliverPendingChanges();
+        }
+        mDeliveringDevices.clear();
+    }
+}
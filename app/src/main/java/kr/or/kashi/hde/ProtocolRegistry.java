@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import kr.or.kashi.hde.ksx4506.KSMainContext;
+import kr.or.kashi.hde.ksx4506_ex.KSMainContext2;
+import kr.or.kashi.hde.ksx4506_kd.KDMainContext;
+
+/**
+ * Registry that maps the id of protocol to the factory of {@link MainContext}
+ * that implements the protocol. New vendor's protocol can be supported by
+ * registering its factory without modifying {@link HomeNetwork}.
+ */
+public final class ProtocolRegistry {
+    private static final String TAG = ProtocolRegistry.class.getSimpleName();
+
+    public static final String KSX4506_KD = "KS X 4506";            // non-standard
+    public static final String KSX4506_STD = "KS X 4506 (2016)";    // standard (2016)
+    public static final String KSX4506_EX = "KS X 4506 (2022)";     // extended (2022)
+
+    public static final String DEFAULT_PROTOCOL = KSX4506_KD;
+
+    public interface Factory {
+        MainContext create(Context context, boolean isSlaveMode);
+    }
+
+    // Keeps the order of registration to be shown and persisted as index.
+    private static final Map<String, Factory> sFactories = new LinkedHashMap<>();
+
+    static {
+        register(KSX4506_KD, KDMainContext::new);
+        register(KSX4506_STD, KSMainContext::new);
+        register(KSX4506_EX, KSMainContext2::new);
+    }
+
+    private ProtocolRegistry() {}
+
+    public static void register(String protocolId, Factory factory) {
+        synchronized (sFactories) {
+            sFactories.put(protocolId, factory);
+        }
+    }
+
+    public static Factory getFactory(String protocolId) {
+        synchronized (sFactories) {
+            Factory factory = sFactories.get(protocolId);
+            if (factory == null) {
+                Log.w(TAG, "unknown protocol '" + protocolId + "', use default " + DEFAULT_PROTOCOL);
+                factory = sFactories.get(DEFAULT_PROTOCOL);
+            }
+            return factory;
+        }
+    }
+
+    public static List<String> getProtocolIds() {
+        synchronized (sFactories) {
+            return new ArrayList<>(sFactories.keySet());
+        }
+    }
+
+    public static MainContext createMainContext(String protocolId, Context context, boolean isSlaveMode) {
+        return getFactory(protocolId).create(context, isSlaveMode);
+    }
+}
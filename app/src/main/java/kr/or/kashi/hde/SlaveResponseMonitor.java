@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken in slave mode from receiving the last byte of a
+ * request to writing the first byte of its response, and counts responses that
+ * missed the deadline by the type of device and the command of response.
+ * Each response is recorded with the times of stages it went through, that is,
+ * the time until parsing started (stream), parsing and the time until written
+ * after parsing (transmission queue).
+ */
+public class SlaveResponseMonitor {
+    private static final String TAG = SlaveResponseMonitor.class.getSimpleName();
+    private static final boolean DBG = true;
+
+    public static final long DEFAULT_DEADLINE_MS = 10L;
+
+    /** Upper bounds (ms, exclusive) of buckets of histogram, the last bucket is for the rest. */
+    public static final long[] HISTOGRAM_BOUNDS_MS = { 1L, 2L, 5L, 10L, 20L, 50L, 100L };
+
+    private static final long[] HISTOGRAM_BOUNDS_NS = new long[HISTOGRAM_BOUNDS_MS.length];
+    static {
+        for (int i = 0; i < HISTOGRAM_BOUNDS_MS.length; i++) {
+            HISTOGRAM_BOUNDS_NS[i] = TimeUnit.MILLISECONDS.toNanos(HISTOGRAM_BOUNDS_MS[i]);
+        }
+    }
+
+    private final Map<String, Stats[]> mStatsMap = new ConcurrentHashMap<>(); // by device type, then command
+    private volatile long mDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEADLINE_MS);
+
+    /** Statistics of responses of a command of device type */
+    public static final class Stats {
+        private final String mDeviceType;
+        private final int mCommand;
+        private long mCount;
+        private long mMissedCount;
+        private long mFastCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private long mStreamNanos;
+        private long mParseNanos;
+        private long mQueueNanos;
+        private final long[] mHistogram = new long[HISTOGRAM_BOUNDS_MS.length + 1];
+
+        Stats(String deviceType, int command) {
+            mDeviceType = deviceType;
+            mCommand = command;
+        }
+
+        private Stats(Stats other) {
+            mDeviceType = other.mDeviceType;
+            mCommand = other.mCommand;
+            mCount = other.mCount;
+            mMissedCount = other.mMissedCount;
+            mFastCount = other.mFastCount;
+            mTotalNanos = other.mTotalNanos;
+            mMaxNanos = other.mMaxNanos;
+            mStreamNanos = other.mStreamNanos;
+            mParseNanos = other.mParseNanos;
+            mQueueNanos = other.mQueueNanos;
+            System.arraycopy(other.mHistogram, 0, mHistogram, 0, mHistogram.length);
+        }
+
+        public String getDeviceType() { return mDeviceType; }
+        public int getCommand() { return mCommand; }
+        public long getCount() { return mCount; }
+        public long getMissedCount() { return mMissedCount; }
+        /** Count of responses written before being parsed, see {@link kr.or.kashi.hde.session.SlaveResponder} */
+        public long getFastCount() { return mFastCount; }
+        public long getMaxMicros() { return toMicros(mMaxNanos); }
+        public long getAverageMicros() { return average(mTotalNanos, mCount); }
+        public long getAverageStreamMicros() { return average(mStreamNanos, mCount - mFastCount); }
+        public long getAverageParseMicros() { return average(mParseNanos, mCount - mFastCount); }
+        public long getAverageQueueMicros() { return average(mQueueNanos, mCount - mFastCount); }
+        /** Counts of responses in buckets divided by {@link #HISTOGRAM_BOUNDS_MS} */
+        public long[] getHistogram() { return mHistogram.clone(); }
+
+        private static long toMicros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+
+        private static long average(long totalNanos, long count) {
+            return (count > 0) ? toMicros(totalNanos / count) : 0L;
+        }
+
+        @Override
+        public String toString() {
+            return mDeviceType + "[0x" + Integer.toHexString(mCommand) + "]"
+                    + " count:" + mCount + ", missed:" + mMissedCount + ", fast:" + mFastCount
+                    + ", avg:" + getAverageMicros() + "us, max:" + getMaxMicros() + "us";
+        }
+    }
+
+    public void setDeadline(long deadlineMs) {
+        mDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+    }
+
+    public long getDeadline() {
+        return TimeUnit.NANOSECONDS.toMillis(mDeadlineNanos);
+    }
+
+    /**
+     * Records a response.
+     * @param deviceType Type of device that responded.
+     * @param command Command of response.
+     * @param rxTime Time ({@link System#nanoTime()}) when the request was received.
+     * @param parseStartTime Time when the request started to be parsed, or 0 if
+     *                       responded before parsing.
+     * @param parseEndTime Time when the request has been parsed, or 0 if responded
+     *                     before parsing.
+     * @param txTime Time when the response started to be written.
+     */
+    public void record(String deviceType, int command, long rxTime,
+            long parseStartTime, long parseEndTime, long txTime) {
+        final long elapsed = txTime - rxTime;
+        final boolean missed = (elapsed > mDeadlineNanos);
+        final boolean fast = (parseStartTime == 0L);
+
+        final Stats stats = getOrCreateStats(deviceType, command);
+        synchronized (stats) {
+            stats.mCount++;
+            stats.mTotalNanos += elapsed;
+            if (elapsed > stats.mMaxNanos) stats.mMaxNanos = elapsed;
+            if (missed) stats.mMissedCount++;
+            if (fast) {
+                stats.mFastCount++;
+            } else {
+                stats.mStreamNanos += parseStartTime - rxTime;
+                stats.mParseNanos += parseEndTime - parseStartTime;
+                stats.mQueueNanos += txTime - parseEndTime;
+            }
+            stats.mHistogram[bucketOf(elapsed)]++;
+        }
+
+        if (DBG && missed) {
+            Log.w(TAG, "response deadline missed! " + deviceType + "[0x" + Integer.toHexString(command) + "] "
+                    + Stats.toMicros(elapsed) + "us" + (fast ? " (fast)" : " (stream:"
+                    + Stats.toMicros(parseStartTime - rxTime) + ", parse:"
+                    + Stats.toMicros(parseEndTime - parseStartTime) + ", queue:"
+                    + Stats.toMicros(txTime - parseEndTime) + ")"));
+        }
+    }
+
+    /** Returns the snapshot of statistics of all the device types and commands. */
+    public List<Stats> getStats() {
+        final List<Stats> result = new ArrayList<>();
+        for (Stats[] statsByCommand : mStatsMap.values()) {
+            for (Stats stats : statsByCommand) {
+                if (stats == null) continue;
+                synchronized (stats) {
+                    result.add(new Stats(stats));
+                }
+            }
+        }
+        return result;
+    }
+
+    public long getTotalCount() {
+        long count = 0L;
+        for (Stats stats : getStats()) count += stats.getCount();
+        return count;
+    }
+
+    public long getMissedCount() {
+        long count = 0L;
+        for (Stats stats : getStats()) count += stats.getMissedCount();
+        return count;
+    }
+
+    public void reset() {
+        mStatsMap.clear();
+    }
+
+    private Stats getOrCreateStats(String deviceType, int command) {
+        Stats[] statsByCommand = mStatsMap.get(deviceType);
+        if (statsByCommand == null) {
+            statsByCommand = mStatsMap.computeIfAbsent(deviceType, (k) -> new Stats[0x100]);
+        }
+        final int index = command & 0xFF;
+        synchronized (statsByCommand) {
+            if (statsByCommand[index] == null) {
+                statsByCommand[index] = new Stats(deviceType, index);
+            }
+            return statsByCommand[index];
+        }
+    }
+
+    private static int bucketOf(long elapsedNanos) {
+        for (int i = 0; i < HISTOGRAM_BOUNDS_NS.length; i++) {
+            if (elapsedNanos < HISTOGRAM_BOUNDS_NS[i]) return i;
+        }
+        return HISTOGRAM_BOUNDS_NS.length;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.base;
+
+/**
+ * The typed key of a property. The value of property can be read through the
+ * key as primitive type without class token and boxing, for example,
+ * {@link PropertyMap#getInt(PropKey.Int)}.
+ */
+public abstract class PropKey {
+    private final String mName;
+
+    protected PropKey(String name) {
+        mName = name;
+    }
+
+    /** The name of property */
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+
+    /** The key of boolean property */
+    public static final class Bool extends PropKey {
+        public Bool(String name) { super(name); }
+    }
+
+    /** The key of integer property */
+    public static final class Int extends PropKey {
+        public Int(String name) { super(name); }
+    }
+
+    /** The key of long property */
+    public static final class Long extends PropKey {
+        public Long(String name) { super(name); }
+    }
+
+    /** The key of float property */
+    public static final class Float extends PropKey {
+        public Float(String name) { super(name); }
+    }
+
+    /** The key of double property */
+    public static final class Double extends PropKey {
+        public Double(String name) { super(name); }
+    }
+}
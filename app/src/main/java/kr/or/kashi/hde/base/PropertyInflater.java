@@ -21,13 +21,32 @@ import android.util.Log;
 
 import java.lang.StringBuilder;
 import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** @hide */
 public class PropertyInflater {
     private static final String TAG = PropertyInflater.class.getSimpleName();
 
+    private static final Map<Class<?>, Map<String, PropertyValue>> sDefaultPropsCache
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the default properties of the class. The properties are inflated only once
+     * per class and the immutable map is shared by all callers, so don't modify it but
+     * copy into other map to change values.
+     */
+    public static Map<String, PropertyValue> getDefaults(Class<?> clazz) {
+        Map<String, PropertyValue> defaultProps = sDefaultPropsCache.get(clazz);
+        if (defaultProps == null) {
+            defaultProps = Collections.unmodifiableMap(inflate(clazz));
+            sDefaultPropsCache.put(clazz, defaultProps);
+        }
+        return defaultProps;
+    }
+
     public static Map<String, PropertyValue> inflate(String className) {
         try {
             return inflate(Class.forName(className));
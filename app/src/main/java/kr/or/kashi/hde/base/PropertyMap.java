@@ -24,6 +24,7 @@ import kr.or.kashi.hde.base.PropertyValue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -38,6 +39,31 @@ public abstract class PropertyMap {
         return (E) get(name).getValue();
     }
 
+    /** Get the value of a boolean property */
+    public boolean getBoolean(PropKey.Bool key) {
+        return get(key.getName(), Boolean.class);
+    }
+
+    /** Get the value of an integer property */
+    public int getInt(PropKey.Int key) {
+        return get(key.getName(), Integer.class);
+    }
+
+    /** Get the value of a long property */
+    public long getLong(PropKey.Long key) {
+        return get(key.getName(), Long.class);
+    }
+
+    /** Get the value of a float property */
+    public float getFloat(PropKey.Float key) {
+        return get(key.getName(), Float.class);
+    }
+
+    /** Get the value of a double property */
+    public double getDouble(PropKey.Double key) {
+        return get(key.getName(), Double.class);
+    }
+
     /** Put new string value to a property */
     public void put(String name, String value) {
         put(new PropertyValue<String>(name, value));
@@ -70,54 +96,62 @@ public abstract class PropertyMap {
 
     /** Put only bits of value in mask to a property */
     public void putBit(String name, int mask, boolean set) {
-        int current = get(name, Integer.class);
-        if (set) {
-            current |= mask;
-        } else {
-            current &= ~mask;
-        }
-        put(name, current);
+        putBits(name, mask, set ? mask : 0);
     }
 
     /** Put only bits of value in mask to a property */
     public void putBit(String name, long mask, boolean set) {
-        long current = get(name, Long.class);
-        if (set) {
-            current |= mask;
-        } else {
-            current &= ~mask;
-        }
-        put(name, current);
+        putBits(name, mask, set ? mask : 0L);
     }
 
     /** Put only bits of value in mask to a property */
     public void putBits(String name, int mask, int value) {
-        int current = get(name, Integer.class);
-        for (int i=0; i<Integer.SIZE; i++) {
-            int indexBit = (1 << i);
-            if ((mask & indexBit) != 0) {
-                if ((value & indexBit) != 0)
-                    current |= indexBit;
-                else
-                    current &= ~indexBit;
-            }
-        }
-        put(name, current);
+        final int current = get(name, Integer.class);
+        put(name, (current & ~mask) | (value & mask));
     }
 
     /** Put only bits of value in mask to a property */
     public void putBits(String name, long mask, long value) {
-        long current = get(name, Long.class);
-        for (int i=0; i<Long.SIZE; i++) {
-            long indexBit = (1 << i);
-            if ((mask & indexBit) != 0) {
-                if ((value & indexBit) != 0)
-                    current |= indexBit;
-                else
-                    current &= ~indexBit;
-            }
+        final long current = get(name, Long.class);
+        put(name, (current & ~mask) | (value & mask));
+    }
+
+    /** Start editing bits of a long property to be put at once by {@link BitsEditor#apply()} */
+    public BitsEditor editBits(String name) {
+        return new BitsEditor(this, name);
+    }
+
+    /**
+     * Accumulates changes of several bits of a property, and puts them with
+     * single {@link #putBits(String, long, long)} instead of one by one.
+     */
+    public static final class BitsEditor {
+        private final PropertyMap mMap;
+        private final String mName;
+        private long mMask;
+        private long mValue;
+
+        private BitsEditor(PropertyMap map, String name) {
+            mMap = map;
+            mName = name;
+        }
+
+        /** Set or clear the bits in mask */
+        public BitsEditor set(long mask, boolean set) {
+            return copy(mask, set ? mask : 0L);
+        }
+
+        /** Copy the bits in mask from the value */
+        public BitsEditor copy(long mask, long value) {
+            mMask |= mask;
+            mValue = (mValue & ~mask) | (value & mask);
+            return this;
+        }
+
+        /** Put all the edited bits to the property */
+        public void apply() {
+            if (mMask != 0L) mMap.putBits(mName, mMask, mValue);
         }
-        put(name, current);
     }
 
     /** Get all the property values as list */
@@ -148,9 +182,18 @@ public abstract class PropertyMap {
 
     /** Put all the property value from other collection */
     public void putAll(Collection<PropertyValue> props) {
-        for (PropertyValue prop : props) {
-            put(prop);
-        }
+        putBatch(props);
+    }
+
+    /**
+     * Put all the property values at once, and notify the change only once
+     * no matter how many properties have been changed.
+     * @return The list of values that have been actually changed, empty if nothing.
+     */
+    public List<PropertyValue> putBatch(Collection<PropertyValue> props) {
+        final List<PropertyValue> changedProps = putAllInternal(props);
+        if (!changedProps.isEmpty()) onChanged();
+        return changedProps;
     }
 
     /** Get a property value */
@@ -179,26 +222,54 @@ public abstract class PropertyMap {
         }
     }
 
+    /** @hide */
+    public void removeChangeRunnable(Runnable changeRunnable) {
+        synchronized (mChangeRunnables) {
+            ListIterator<WeakReference<Runnable>> iter = mChangeRunnables.listIterator();
+            while (iter.hasNext()) {
+                Runnable runnable = iter.next().get();
+                if (runnable == null || runnable == changeRunnable) iter.remove();
+            }
+        }
+    }
+
     protected void onChanged() {
         mVersion++;
 
         List<WeakReference<Runnable>> runnables;
         synchronized (mChangeRunnables) {
+            if (mChangeRunnables.isEmpty()) return;
             runnables = new ArrayList<>(mChangeRunnables);
         }
 
-        ListIterator<WeakReference<Runnable>> iter = runnables.listIterator();
-        while(iter.hasNext()){
-            WeakReference<Runnable> runnable = iter.next();
-            if (runnable.get() != null) {
-                runnable.get().run();
+        boolean hasReleased = false;
+        for (WeakReference<Runnable> runnableRef : runnables) {
+            Runnable runnable = runnableRef.get();
+            if (runnable != null) {
+                runnable.run();
             } else {
-                iter.remove();
+                hasReleased = true;
             }
         }
+
+        if (hasReleased) {
+            // Remove the references released already from the list, not from the copy.
+            removeChangeRunnable(null);
+        }
     }
 
     protected abstract PropertyValue getInternal(String name);
     protected abstract List<PropertyValue> getAllInternal();
     protected abstract boolean putInternal(PropertyValue prop);
+
+    protected List<PropertyValue> putAllInternal(Collection<PropertyValue> props) {
+        List<PropertyValue> changedProps = null;
+        for (PropertyValue prop : props) {
+            if (putInternal(prop)) {
+                if (changedProps == null) changedProps = new ArrayList<>(props.size());
+                changedProps.add(prop);
+            }
+        }
+        return (changedProps != null) ? changedProps : Collections.emptyList();
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.base;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The layout of properties of a device class. Each property defined by
+ * {@link PropertyDef} is resolved to a small integer slot only once per class,
+ * and the default values are kept in primitive arrays to be copied into
+ * {@link SlotPropertyMap} of each device.
+ *
+ * @hide
+ */
+public final class PropertySchema {
+    public static final int TYPE_OBJECT     = 0;
+    public static final int TYPE_BOOLEAN    = 1;
+    public static final int TYPE_INT        = 2;
+    public static final int TYPE_LONG       = 3;
+    public static final int TYPE_FLOAT      = 4;
+    public static final int TYPE_DOUBLE     = 5;
+
+    private static final Map<Class<?>, PropertySchema> sSchemas = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> mSlots;
+    private final String[] mNames;
+    private final int[] mTypes;
+    final long[] mDefaultLongs;
+    final double[] mDefaultDoubles;
+    final Object[] mDefaultObjects;
+    final PropertyValue[] mDefaultValues;
+
+    /** Returns the schema of the class, that is created only once per class. */
+    public static PropertySchema of(Class<?> clazz) {
+        PropertySchema schema = sSchemas.get(clazz);
+        if (schema == null) {
+            schema = new PropertySchema(PropertyInflater.getDefaults(clazz));
+            sSchemas.put(clazz, schema);
+        }
+        return schema;
+    }
+
+    private PropertySchema(Map<String, PropertyValue> defaultProps) {
+        final int size = defaultProps.size();
+        mSlots = new HashMap<>(size * 2);
+        mNames = new String[size];
+        mTypes = new int[size];
+        mDefaultLongs = new long[size];
+        mDefaultDoubles = new double[size];
+        mDefaultObjects = new Object[size];
+        mDefaultValues = new PropertyValue[size];
+
+        int slot = 0;
+        for (PropertyValue prop : defaultProps.values()) {
+            final Object value = prop.getValue();
+            final int type = typeOf(value);
+
+            mSlots.put(prop.getName(), slot);
+            mNames[slot] = prop.getName();
+            mTypes[slot] = type;
+            mDefaultValues[slot] = prop;
+
+            switch (type) {
+                case TYPE_BOOLEAN: mDefaultLongs[slot] = ((Boolean) value) ? 1L : 0L; break;
+                case TYPE_INT: mDefaultLongs[slot] = (Integer) value; break;
+                case TYPE_LONG: mDefaultLongs[slot] = (Long) value; break;
+                case TYPE_FLOAT: mDefaultDoubles[slot] = (Float) value; break;
+                case TYPE_DOUBLE: mDefaultDoubles[slot] = (Double) value; break;
+                default: mDefaultObjects[slot] = value; break;
+            }
+
+            slot++;
+        }
+    }
+
+    /** The number of slots */
+    public int size() {
+        return mNames.length;
+    }
+
+    /** Returns the slot of the property, or -1 if not defined in this schema. */
+    public int slotOf(String name) {
+        final Integer slot = mSlots.get(name);
+        return (slot != null) ? slot : -1;
+    }
+
+    public String nameAt(int slot) {
+        return mNames[slot];
+    }
+
+    public int typeAt(int slot) {
+        return mTypes[slot];
+    }
+
+    /** Returns the type of slot that can store the value. */
+    public static int typeOf(Object value) {
+        if (value instanceof Boolean) return TYPE_BOOLEAN;
+        if (value instanceof Integer) return TYPE_INT;
+        if (value instanceof Long) return TYPE_LONG;
+        if (value instanceof Float) return TYPE_FLOAT;
+        if (value instanceof Double) return TYPE_DOUBLE;
+        return TYPE_OBJECT;
+    }
+}
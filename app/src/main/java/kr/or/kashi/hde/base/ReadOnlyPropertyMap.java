@@ -50,6 +50,31 @@ public class ReadOnlyPropertyMap extends PropertyMap {
         return mMap.get(name);
     }
 
+    @Override
+    public boolean getBoolean(PropKey.Bool key) {
+        return mMap.getBoolean(key);
+    }
+
+    @Override
+    public int getInt(PropKey.Int key) {
+        return mMap.getInt(key);
+    }
+
+    @Override
+    public long getLong(PropKey.Long key) {
+        return mMap.getLong(key);
+    }
+
+    @Override
+    public float getFloat(PropKey.Float key) {
+        return mMap.getFloat(key);
+    }
+
+    @Override
+    public double getDouble(PropKey.Double key) {
+        return mMap.getDouble(key);
+    }
+
     @Override
     protected List<PropertyValue> getAllInternal() {
         return mMap.getAll();
@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.base;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static kr.or.kashi.hde.base.PropertySchema.TYPE_BOOLEAN;
+import static kr.or.kashi.hde.base.PropertySchema.TYPE_DOUBLE;
+import static kr.or.kashi.hde.base.PropertySchema.TYPE_FLOAT;
+import static kr.or.kashi.hde.base.PropertySchema.TYPE_INT;
+import static kr.or.kashi.hde.base.PropertySchema.TYPE_LONG;
+import static kr.or.kashi.hde.base.PropertySchema.TYPE_OBJECT;
+
+/**
+ * The property map that stores values in primitive arrays indexed by the slots
+ * of {@link PropertySchema}, instead of a map of boxed {@link PropertyValue}s.
+ * The {@link PropertyValue} of a slot is created only when it's read, and kept
+ * until the value is changed, so reading a property that has been read already
+ * never takes the lock. Properties that are not in the schema are stored in a
+ * normal map as before.
+ *
+ * @hide
+ */
+public class SlotPropertyMap extends PropertyMap {
+    private final Object mLock = new Object();
+    private final PropertySchema mSchema;
+    private final int[] mTypes;
+    private final long[] mLongs;            // boolean, int, long
+    private final double[] mDoubles;        // float, double
+    private final Object[] mObjects;        // string, others
+    private final AtomicReferenceArray<PropertyValue> mValues; // created values, null if not yet
+    private final Map<String, PropertyValue> mExtraMap = new ConcurrentHashMap<>();
+
+    public SlotPropertyMap(PropertySchema schema) {
+        final int size = schema.size();
+        mSchema = schema;
+        mTypes = new int[size];
+        for (int i = 0; i < size; i++) {
+            mTypes[i] = schema.typeAt(i);
+        }
+        mLongs = schema.mDefaultLongs.clone();
+        mDoubles = schema.mDefaultDoubles.clone();
+        mObjects = schema.mDefaultObjects.clone();
+        mValues = new AtomicReferenceArray<>(schema.mDefaultValues); // Share immutable default values
+    }
+
+    public PropertySchema getSchema() {
+        return mSchema;
+    }
+
+    /** Get a property value of the slot */
+    public PropertyValue getAt(int slot) {
+        final PropertyValue prop = mValues.get(slot);
+        if (prop != null) return prop;
+        synchronized (mLock) {
+            return getAtLocked(slot);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(PropKey.Bool key) {
+        final int slot = mSchema.slotOf(key.getName());
+        if (slot < 0) return super.getBoolean(key);
+        final PropertyValue prop = mValues.get(slot);
+        if (prop != null) return (Boolean) prop.getValue();
+        return readLong(slot, TYPE_BOOLEAN) != 0L;
+    }
+
+    @Override
+    public int getInt(PropKey.Int key) {
+        final int slot = mSchema.slotOf(key.getName());
+        if (slot < 0) return super.getInt(key);
+        final PropertyValue prop = mValues.get(slot);
+        if (prop != null) return (Integer) prop.getValue();
+        return (int) readLong(slot, TYPE_INT);
+    }
+
+    @Override
+    public long getLong(PropKey.Long key) {
+        final int slot = mSchema.slotOf(key.getName());
+        if (slot < 0) return super.getLong(key);
+        final PropertyValue prop = mValues.get(slot);
+        if (prop != null) return (Long) prop.getValue();
+        return readLong(slot, TYPE_LONG);
+    }
+
+    @Override
+    public float getFloat(PropKey.Float key) {
+        final int slot = mSchema.slotOf(key.getName());
+        if (slot < 0) return super.getFloat(key);
+        final PropertyValue prop = mValues.get(slot);
+        if (prop != null) return (Float) prop.getValue();
+        return (float) readDouble(slot, TYPE_FLOAT);
+    }
+
+    @Override
+    public double getDouble(PropKey.Double key) {
+        final int slot = mSchema.slotOf(key.getName());
+        if (slot < 0) return super.getDouble(key);
+        final PropertyValue prop = mValues.get(slot);
+        if (prop != null) return (Double) prop.getValue();
+        return readDouble(slot, TYPE_DOUBLE);
+    }
+
+    @Override
+    protected PropertyValue getInternal(String name) {
+        final int slot = mSchema.slotOf(name);
+        if (slot < 0) return mExtraMap.get(name);
+        return getAt(slot);
+    }
+
+    @Override
+    protected List<PropertyValue> getAllInternal() {
+        final int size = mValues.length();
+        final List<PropertyValue> props = new ArrayList<>(size + mExtraMap.size());
+        for (int i = 0; i < size; i++) {
+            props.add(getAt(i));
+        }
+        props.addAll(mExtraMap.values());
+        return props;
+    }
+
+    @Override
+    protected boolean putInternal(PropertyValue prop) {
+        final int slot = mSchema.slotOf(prop.getName());
+        if (slot < 0) {
+            PropertyValue curProp = mExtraMap.get(prop.getName());
+            if (!prop.equals(curProp)) {
+                mExtraMap.put(prop.getName(), prop);
+                return true;
+            }
+            return false;
+        }
+
+        final Object value = prop.getValue();
+        final int type = PropertySchema.typeOf(value);
+        switch (type) {
+            case TYPE_BOOLEAN: return storeLong(slot, type, ((Boolean) value) ? 1L : 0L, prop);
+            case TYPE_INT: return storeLong(slot, type, (Integer) value, prop);
+            case TYPE_LONG: return storeLong(slot, type, (Long) value, prop);
+            case TYPE_FLOAT: return storeDouble(slot, type, (Float) value, prop);
+            case TYPE_DOUBLE: return storeDouble(slot, type, (Double) value, prop);
+            default: return storeObject(slot, value, prop);
+        }
+    }
+
+    @Override
+    protected List<PropertyValue> putAllInternal(Collection<PropertyValue> props) {
+        synchronized (mLock) {
+            // Apply all the values in one go to not be interleaved with other writers.
+            return super.putAllInternal(props);
+        }
+    }
+
+    @Override
+    public void put(String name, String value) {
+        final int slot = mSchema.slotOf(name);
+        if (slot < 0) {
+            super.put(name, value);
+        } else if (storeObject(slot, value, null)) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void put(String name, boolean value) {
+        final int slot = mSchema.slotOf(name);
+        if (slot < 0) {
+            super.put(name, value);
+        } else if (storeLong(slot, TYPE_BOOLEAN, value ? 1L : 0L, null)) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void put(String name, int value) {
+        final int slot = mSchema.slotOf(name);
+        if (slot < 0) {
+            super.put(name, value);
+        } else if (storeLong(slot, TYPE_INT, value, null)) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void put(String name, long value) {
+        final int slot = mSchema.slotOf(name);
+        if (slot < 0) {
+            super.put(name, value);
+        } else if (storeLong(slot, TYPE_LONG, value, null)) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void put(String name, float value) {
+        final int slot = mSchema.slotOf(name);
+        if (slot < 0) {
+            super.put(name, value);
+        } else if (storeDouble(slot, TYPE_FLOAT, value, null)) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void put(String name, double value) {
+        final int slot = mSchema.slotOf(name);
+        if (slot < 0) {
+            super.put(name, value);
+        } else if (storeDouble(slot, TYPE_DOUBLE, value, null)) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void putBits(String name, int mask, int value) {
+        final int slot = mSchema.slotOf(name);
+        final int res = (slot >= 0) ? applyBits(slot, TYPE_INT, mask, value) : -1;
+        if (res < 0) {
+            super.putBits(name, mask, value);
+        } else if (res > 0) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void putBits(String name, long mask, long value) {
+        final int slot = mSchema.slotOf(name);
+        final int res = (slot >= 0) ? applyBits(slot, TYPE_LONG, mask, value) : -1;
+        if (res < 0) {
+            super.putBits(name, mask, value);
+        } else if (res > 0) {
+            onChanged();
+        }
+    }
+
+    private long readLong(int slot, int type) {
+        synchronized (mLock) {
+            if (mTypes[slot] != type) throw new ClassCastException(typeMismatchMessage(slot, type));
+            return mLongs[slot];
+        }
+    }
+
+    private double readDouble(int slot, int type) {
+        synchronized (mLock) {
+            if (mTypes[slot] != type) throw new ClassCastException(typeMismatchMessage(slot, type));
+            return mDoubles[slot];
+        }
+    }
+
+    private String typeMismatchMessage(int slot, int type) {
+        return "type of " + mSchema.nameAt(slot) + " is " + mTypes[slot] + ", not " + type;
+    }
+
+    /** Returns 1 if changed, 0 if not changed, or -1 if the slot is not of the type */
+    private int applyBits(int slot, int type, long mask, long value) {
+        synchronized (mLock) {
+            if (mTypes[slot] != type) return -1;
+            // Bits of int value are also sign-extended as well as the stored value.
+            final long bits = (mLongs[slot] & ~mask) | (value & mask);
+            return storeLong(slot, type, bits, null) ? 1 : 0;
+        }
+    }
+
+    private boolean storeLong(int slot, int type, long value, PropertyValue prop) {
+        synchronized (mLock) {
+            if (mTypes[slot] == type && mLongs[slot] == value) return false;
+            mTypes[slot] = type;
+            mLongs[slot] = value;
+            mObjects[slot] = null;
+            mValues.set(slot, prop);
+            return true;
+        }
+    }
+
+    private boolean storeDouble(int slot, int type, double value, PropertyValue prop) {
+        synchronized (mLock) {
+            if (mTypes[slot] == type && Double.compare(mDoubles[slot], value) == 0) return false;
+            mTypes[slot] = type;
+            mDoubles[slot] = value;
+            mObjects[slot] = null;
+            mValues.set(slot, prop);
+            return true;
+        }
+    }
+
+    private boolean storeObject(int slot, Object value, PropertyValue prop) {
+        synchronized (mLock) {
+            if (mTypes[slot] == TYPE_OBJECT && Objects.equals(mObjects[slot], value)) return false;
+            mTypes[slot] = TYPE_OBJECT;
+            mObjects[slot] = value;
+            mValues.set(slot, prop);
+            return true;
+        }
+    }
+
+    private PropertyValue getAtLocked(int slot) {
+        PropertyValue prop = mValues.get(slot);
+        if (prop == null) {
+            prop = createValueLocked(slot);
+            mValues.set(slot, prop);
+        }
+        return prop;
+    }
+
+    private PropertyValue createValueLocked(int slot) {
+        final String name = mSchema.nameAt(slot);
+        switch (mTypes[slot]) {
+            case TYPE_BOOLEAN: return new PropertyValue<Boolean>(name, mLongs[slot] != 0L);
+            case TYPE_INT: return new PropertyValue<Integer>(name, (int) mLongs[slot]);
+            case TYPE_LONG: return new PropertyValue<Long>(name, mLongs[slot]);
+            case TYPE_FLOAT: return new PropertyValue<Float>(name, (float) mDoubles[slot]);
+            case TYPE_DOUBLE: return new PropertyValue<Double>(name, mDoubles[slot]);
+            default: return new PropertyValue<Object>(name, mObjects[slot]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getSimpleName());
+        sb.append("[");
+        for (PropertyValue propValue: getAllInternal()) {
+            sb.append(propValue.getName() + "=" + propValue.getValue());
+            sb.append(",");
+        }
+        sb.append("]");
+
+        return sb.toString();
+    }
+}
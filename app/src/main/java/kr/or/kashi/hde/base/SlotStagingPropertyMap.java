@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.base;
+
+import android.util.ArrayMap;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static kr.or.kashi.hde.base.PropertySchema.TYPE_OBJECT;
+
+/**
+ * The property map that stages values over the base map in the slots of
+ * {@link PropertySchema}, in place. Unlike {@link StageablePropertyMap}, staging
+ * a value never allocates, but the map is not thread-safe and has no commit, so
+ * it's only for the values requested to the tasks of a device in its looper.
+ * Properties that are not in the schema are staged in a normal map.
+ *
+ * @hide
+ */
+public class SlotStagingPropertyMap extends PropertyMap {
+    private static final String TAG = SlotStagingPropertyMap.class.getSimpleName();
+
+    private final PropertyMap mBaseMap;
+    private final PropertySchema mSchema;
+    private final PropertyValue[] mSlotValues;  // null if not staged
+    private final int[] mStagedSlots;           // slots in order of staging
+    private int mStagedCount = 0;
+    private final Map<String, PropertyValue> mExtraValues = new ArrayMap<>();
+
+    public SlotStagingPropertyMap(PropertyMap baseMap, PropertySchema schema) {
+        mBaseMap = baseMap;
+        mSchema = schema;
+        mSlotValues = new PropertyValue[schema.size()];
+        mStagedSlots = new int[schema.size()];
+    }
+
+    @Override
+    protected PropertyValue getInternal(String name) {
+        final PropertyValue prop = getStaged(name);
+        if (prop != null) return prop;
+        return mBaseMap.get(name);
+    }
+
+    @Override
+    public boolean getBoolean(PropKey.Bool key) {
+        final PropertyValue prop = getStaged(key.getName());
+        if (prop != null) return (Boolean) prop.getValue();
+        return mBaseMap.getBoolean(key);
+    }
+
+    @Override
+    public int getInt(PropKey.Int key) {
+        final PropertyValue prop = getStaged(key.getName());
+        if (prop != null) return (Integer) prop.getValue();
+        return mBaseMap.getInt(key);
+    }
+
+    @Override
+    public long getLong(PropKey.Long key) {
+        final PropertyValue prop = getStaged(key.getName());
+        if (prop != null) return (Long) prop.getValue();
+        return mBaseMap.getLong(key);
+    }
+
+    @Override
+    public float getFloat(PropKey.Float key) {
+        final PropertyValue prop = getStaged(key.getName());
+        if (prop != null) return (Float) prop.getValue();
+        return mBaseMap.getFloat(key);
+    }
+
+    @Override
+    public double getDouble(PropKey.Double key) {
+        final PropertyValue prop = getStaged(key.getName());
+        if (prop != null) return (Double) prop.getValue();
+        return mBaseMap.getDouble(key);
+    }
+
+    @Override
+    protected List<PropertyValue> getAllInternal() {
+        final List<PropertyValue> baseList = mBaseMap.getAll();
+        final List<PropertyValue> props = new ArrayList<>(baseList.size() + mExtraValues.size());
+        for (PropertyValue prop : baseList) {
+            final PropertyValue staged = getStaged(prop.getName());
+            props.add((staged != null) ? staged : prop);
+        }
+        for (PropertyValue prop : mExtraValues.values()) {
+            if (mBaseMap.get(prop.getName()) == null) props.add(prop);
+        }
+        return props;
+    }
+
+    @Override
+    protected boolean putInternal(PropertyValue prop) {
+        final int slot = mSchema.slotOf(prop.getName());
+        if (slot < 0) {
+            mExtraValues.put(prop.getName(), prop);
+            return true;
+        }
+
+        // The type of slot is checked instead of the current value of the base
+        // map, not to create the value there only to compare the class.
+        final int type = mSchema.typeAt(slot);
+        if (type != TYPE_OBJECT && type != PropertySchema.typeOf(prop.getValue())) {
+            Log.e(TAG,  "new value class(" + prop.getValueClass() + ") is differ from " +
+                        "the type of slot (" + type + ")");
+            return false;
+        }
+
+        // Same values are staged as well, since they're requested again.
+        if (mSlotValues[slot] == null) mStagedSlots[mStagedCount++] = slot;
+        mSlotValues[slot] = prop;
+        return true;
+    }
+
+    public boolean isStaging() {
+        return mStagedCount > 0 || !mExtraValues.isEmpty();
+    }
+
+    public void clearStaged() {
+        for (int i = 0; i < mStagedCount; i++) {
+            mSlotValues[mStagedSlots[i]] = null;
+        }
+        mStagedCount = 0;
+        if (!mExtraValues.isEmpty()) mExtraValues.clear();
+    }
+
+    private PropertyValue getStaged(String name) {
+        final int slot = mSchema.slotOf(name);
+        if (slot >= 0) return mSlotValues[slot];
+        return mExtraValues.isEmpty() ? null : mExtraValues.get(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getSimpleName());
+        sb.append("[");
+        for (int i = 0; i < mStagedCount; i++) {
+            final PropertyValue propValue = mSlotValues[mStagedSlots[i]];
+            sb.append(propValue.getName() + "=" + propValue.getValue());
+            sb.append(",");
+        }
+        for (PropertyValue propValue: mExtraValues.values()) {
+            sb.append(propValue.getName() + "=" + propValue.getValue());
+            sb.append(",");
+        }
+        sb.append("]");
+
+        return sb.toString();
+    }
+}
@@ -17,21 +17,80 @@
 
 package kr.or.kashi.hde.base;
 
-import android.util.ArrayMap;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
-/** @hide */
+/**
+ * The property map that stages new values over the base map until committed.
+ * The staged values are kept in an immutable snapshot that is replaced as a
+ * whole by each put, so readers never wait for the thread that is staging or
+ * committing values.
+ *
+ * @hide
+ */
 public class StageablePropertyMap extends PropertyMap {
     private static final String TAG = StageablePropertyMap.class.getSimpleName();
 
-    private final Object mLock = new Object();
+    private final Object mCommitLock = new Object();
     private final PropertyMap mBaseMap;
-    private final Map<String, PropertyValue> mStagingMap = new ArrayMap<>();
+    private final AtomicReference<Staged> mStaged = new AtomicReference<>(Staged.EMPTY);
     private final boolean mAllowSame;
+    private final Runnable mBaseChangeRunnable = this::onChanged; // Held since referred weakly
+
+    /** Immutable set of staged values, never modified once published. */
+    private static final class Staged {
+        static final PropertyValue[] NO_VALUES = new PropertyValue[0];
+        static final Staged EMPTY = new Staged(NO_VALUES);
+
+        final PropertyValue[] values;
+
+        Staged(PropertyValue[] values) {
+            this.values = values;
+        }
+
+        int indexOf(String name) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i].getName().equals(name)) return i;
+            }
+            return -1;
+        }
+
+        PropertyValue get(String name) {
+            final int index = indexOf(name);
+            return (index >= 0) ? values[index] : null;
+        }
+
+        Staged with(PropertyValue prop) {
+            final int index = indexOf(prop.getName());
+            final PropertyValue[] newValues;
+            if (index >= 0) {
+                newValues = values.clone();
+                newValues[index] = prop;
+            } else {
+                newValues = Arrays.copyOf(values, values.length + 1);
+                newValues[values.length] = prop;
+            }
+            return new Staged(newValues);
+        }
+
+        Staged without(Staged committed) {
+            // Keep only values that have been staged again while committing.
+            final List<PropertyValue> remains = new ArrayList<>();
+            for (PropertyValue prop : values) {
+                if (committed.get(prop.getName()) != prop) remains.add(prop);
+            }
+            return new Staged(remains.toArray(NO_VALUES));
+        }
+
+        List<PropertyValue> asList() {
+            return Collections.unmodifiableList(Arrays.asList(values));
+        }
+    }
 
     public StageablePropertyMap(PropertyMap baseMap) {
         this(baseMap, false);
@@ -39,32 +98,75 @@ public class StageablePropertyMap extends PropertyMap {
 
     public StageablePropertyMap(PropertyMap baseMap, boolean allowSame) {
         mBaseMap = baseMap;
-        mBaseMap.addChangeRunnable(this::onChanged);
+        mBaseMap.addChangeRunnable(mBaseChangeRunnable);
         mAllowSame = allowSame;
     }
 
     @Override
     protected PropertyValue getInternal(String name) {
-        synchronized (mLock) {
-            PropertyValue prop = mStagingMap.get(name);
-            if (prop != null) return prop;
-            return mBaseMap.get(name);
-        }
+        final PropertyValue prop = mStaged.get().get(name);
+        if (prop != null) return prop;
+        return mBaseMap.get(name);
+    }
+
+    @Override
+    public boolean getBoolean(PropKey.Bool key) {
+        final PropertyValue prop = mStaged.get().get(key.getName());
+        if (prop != null) return (Boolean) prop.getValue();
+        return mBaseMap.getBoolean(key);
+    }
+
+    @Override
+    public int getInt(PropKey.Int key) {
+        final PropertyValue prop = mStaged.get().get(key.getName());
+        if (prop != null) return (Integer) prop.getValue();
+        return mBaseMap.getInt(key);
+    }
+
+    @Override
+    public long getLong(PropKey.Long key) {
+        final PropertyValue prop = mStaged.get().get(key.getName());
+        if (prop != null) return (Long) prop.getValue();
+        return mBaseMap.getLong(key);
+    }
+
+    @Override
+    public float getFloat(PropKey.Float key) {
+        final PropertyValue prop = mStaged.get().get(key.getName());
+        if (prop != null) return (Float) prop.getValue();
+        return mBaseMap.getFloat(key);
+    }
+
+    @Override
+    public double getDouble(PropKey.Double key) {
+        final PropertyValue prop = mStaged.get().get(key.getName());
+        if (prop != null) return (Double) prop.getValue();
+        return mBaseMap.getDouble(key);
     }
 
     @Override
     protected List<PropertyValue> getAllInternal() {
-        synchronized (mLock) {
-            List<PropertyValue> baseList = mBaseMap.getAll();
-            if (mStagingMap.size() > 0) {
-                PropertyMap tempMap = new BasicPropertyMap();
-                tempMap.putAll(baseList);
-                tempMap.putAll(mStagingMap);
-                return tempMap.getAll();
+        final Staged staged = mStaged.get();
+        final List<PropertyValue> baseList = mBaseMap.getAll();
+        if (staged.values.length == 0) {
+            return baseList;
+        }
+
+        final List<PropertyValue> props = new ArrayList<>(baseList.size() + staged.values.length);
+        final boolean[] overlaid = new boolean[staged.values.length];
+        for (PropertyValue prop : baseList) {
+            final int index = staged.indexOf(prop.getName());
+            if (index >= 0) {
+                props.add(staged.values[index]);
+                overlaid[index] = true;
             } else {
-                return baseList;
+                props.add(prop);
             }
         }
+        for (int i = 0; i < overlaid.length; i++) {
+            if (!overlaid[i]) props.add(staged.values[i]);
+        }
+        return props;
     }
 
     @Override
@@ -78,75 +180,89 @@ public class StageablePropertyMap extends PropertyMap {
         }
 
         if (mAllowSame || !prop.equals(curProp)) {
-            synchronized (mLock) {
-                mStagingMap.put(prop.getName(), prop);
-            }
+            Staged cur;
+            do {
+                cur = mStaged.get();
+            } while (!mStaged.compareAndSet(cur, cur.with(prop)));
             return true;
         }
 
         return false;
     }
 
+    /** Stop listening changes of the base map, when this map is not used any more. */
+    public void detach() {
+        mBaseMap.removeChangeRunnable(mBaseChangeRunnable);
+    }
+
     public boolean isStaging() {
-        synchronized (mLock) {
-            return mStagingMap.size() > 0;
-        }
+        return mStaged.get().values.length > 0;
     }
 
     public List<PropertyValue> getStaging() {
-        synchronized (mLock) {
-            return new ArrayList<PropertyValue>(mStagingMap.values());
-        }
+        return mStaged.get().asList();
     }
 
     public void getStaging(List<PropertyValue> outOriginalValues, List<PropertyValue> outStagingValues) {
         outOriginalValues.clear();
         outStagingValues.clear();
 
-        synchronized (mLock) {
-            for (PropertyValue value: mStagingMap.values()) {
-                outOriginalValues.add(mBaseMap.get(value.getName()));
-                outStagingValues.add(value);
-            }
+        for (PropertyValue value: mStaged.get().values) {
+            outOriginalValues.add(mBaseMap.get(value.getName()));
+            outStagingValues.add(value);
         }
     }
 
-    public void commit() {
-        synchronized (mLock) {
-            mBaseMap.putAll(mStagingMap);
-            mStagingMap.clear();
+    /**
+     * Commits all the staged values to the base map with single change notification.
+     * @return The list of values that have been actually changed, empty if nothing.
+     */
+    public List<PropertyValue> commit() {
+        synchronized (mCommitLock) {
+            final Staged staged = mStaged.get();
+            if (staged.values.length == 0) {
+                return Collections.emptyList();
+            }
+
+            // Values are visible from the base map before removed from staging,
+            // so readers never see the old values in the middle of commit.
+            final List<PropertyValue> changedProps = mBaseMap.putBatch(Arrays.asList(staged.values));
+
+            Staged cur;
+            do {
+                cur = mStaged.get();
+            } while (!mStaged.compareAndSet(cur, cur.without(staged)));
+
+            return changedProps;
         }
     }
 
     public void clearStaged() {
-        synchronized (mLock) {
-            mStagingMap.clear();
-        }
+        mStaged.set(Staged.EMPTY);
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
 
-        synchronized (mLock) {
-            final List<PropertyValue> basePros = mBaseMap.getAll();
-            if (basePros.size() > 0) {
-                sb.append("base[");
-                for (PropertyValue propValue: basePros) {
-                    sb.append(propValue.getName() + "=" + propValue.getValue());
-                    sb.append(",");
-                }
-                sb.append("]");
+        final List<PropertyValue> basePros = mBaseMap.getAll();
+        if (basePros.size() > 0) {
+            sb.append("base[");
+            for (PropertyValue propValue: basePros) {
+                sb.append(propValue.getName() + "=" + propValue.getValue());
+                sb.append(",");
             }
+            sb.append("]");
+        }
 
-            if (mStagingMap.size() > 0) {
-                sb.append("staging[");
-                for (PropertyValue propValue: mStagingMap.values()) {
-                    sb.append(propValue.getName() + "=" + propValue.getValue());
-                    sb.append(",");
-                }
-                sb.append("]");
+        final Staged staged = mStaged.get();
+        if (staged.values.length > 0) {
+            sb.append("staging[");
+            for (PropertyValue propValue: staged.values) {
+                sb.append(propValue.getName() + "=" + propValue.getValue());
+                sb.append(",");
             }
+            sb.append("]");
         }
 
         return sb.toString();
@@ -18,6 +18,7 @@
 package kr.or.kashi.hde.device;
 
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.HomeDevice;
 
@@ -53,18 +54,26 @@ public class AirConditioner extends HomeDevice {
     /** Property: Bit flags of supported operation of {@link OpMode} */
     @PropertyDef(valueClass=OpMode.class, formatHint="bits")
     public static final String PROP_SUPPORTED_MODES = PROP_PREFIX + "operation_mode.supports";
+    /** Typed key of {@link #PROP_SUPPORTED_MODES} */
+    public static final PropKey.Int KEY_SUPPORTED_MODES = new PropKey.Int(PROP_SUPPORTED_MODES);
 
     /** Property: Current operation mode of {@link OpMode} */
     @PropertyDef(valueClass=OpMode.class, defValueI=OpMode.COOLING)
     public static final String PROP_OPERATION_MODE  = PROP_PREFIX + "operation_mode.current";
+    /** Typed key of {@link #PROP_OPERATION_MODE} */
+    public static final PropKey.Int KEY_OPERATION_MODE = new PropKey.Int(PROP_OPERATION_MODE);
 
     /** Property: Direction {@link FlowDir} that air blows to */
     @PropertyDef(valueClass=FlowDir.class, defValueI=FlowDir.MANUAL)
     public static final String PROP_FLOW_DIRECTION  = PROP_PREFIX + "flow_direction";
+    /** Typed key of {@link #PROP_FLOW_DIRECTION} */
+    public static final PropKey.Int KEY_FLOW_DIRECTION = new PropKey.Int(PROP_FLOW_DIRECTION);
 
     /** Property: One of {@link FanMode} is set to this */
     @PropertyDef(valueClass=FanMode.class, defValueI=FanMode.MANUAL)
     public static final String PROP_FAN_MODE        = PROP_PREFIX + "fan_mode";
+    /** Typed key of {@link #PROP_FAN_MODE} */
+    public static final PropKey.Int KEY_FAN_MODE    = new PropKey.Int(PROP_FAN_MODE);
 
     /** Property: Minimum level of fan speed */
     @PropertyDef(valueClass=Integer.class, defValueI=1)
@@ -73,30 +82,44 @@ public class AirConditioner extends HomeDevice {
     /** Property: Maximum level of fan speed */
     @PropertyDef(valueClass=Integer.class, defValueI=5)
     public static final String PROP_MAX_FAN_SPEED   = PROP_PREFIX + "fan_speed.maximum";
+    /** Typed key of {@link #PROP_MAX_FAN_SPEED} */
+    public static final PropKey.Int KEY_MAX_FAN_SPEED = new PropKey.Int(PROP_MAX_FAN_SPEED);
 
     /** Property: Current level of fan speed */
     @PropertyDef(valueClass=Integer.class, defValueI=1)
     public static final String PROP_CUR_FAN_SPEED   = PROP_PREFIX + "fan_speed.current";
+    /** Typed key of {@link #PROP_CUR_FAN_SPEED} */
+    public static final PropKey.Int KEY_CUR_FAN_SPEED = new PropKey.Int(PROP_CUR_FAN_SPEED);
 
     /** Property: Resolution of temperature (defaut: 1.0) */
     @PropertyDef(valueClass=Float.class, defValueF=0.5f)
     public static final String PROP_TEMP_RESOLUTION = PROP_PREFIX + "temperature.resolution";
+    /** Typed key of {@link #PROP_TEMP_RESOLUTION} */
+    public static final PropKey.Float KEY_TEMP_RESOLUTION = new PropKey.Float(PROP_TEMP_RESOLUTION);
 
     /** Property: Lowest temperature */
     @PropertyDef(valueClass=Float.class, defValueF=5.0f)
     public static final String PROP_MIN_TEMPERATURE = PROP_PREFIX + "temperature.minimum";
+    /** Typed key of {@link #PROP_MIN_TEMPERATURE} */
+    public static final PropKey.Float KEY_MIN_TEMPERATURE = new PropKey.Float(PROP_MIN_TEMPERATURE);
 
     /** Property: Highest temperature */
     @PropertyDef(valueClass=Float.class, defValueF=30.0f)
     public static final String PROP_MAX_TEMPERATURE = PROP_PREFIX + "temperature.maximum";
+    /** Typed key of {@link #PROP_MAX_TEMPERATURE} */
+    public static final PropKey.Float KEY_MAX_TEMPERATURE = new PropKey.Float(PROP_MAX_TEMPERATURE);
 
     /** Property: Last temperature that is requested */
     @PropertyDef(valueClass=Float.class, defValueF=18.5f)
     public static final String PROP_REQ_TEMPERATURE = PROP_PREFIX + "temperature.request";
+    /** Typed key of {@link #PROP_REQ_TEMPERATURE} */
+    public static final PropKey.Float KEY_REQ_TEMPERATURE = new PropKey.Float(PROP_REQ_TEMPERATURE);
 
     /** Property: Current temperature that has been retrieved from device */
     @PropertyDef(valueClass=Float.class, defValueF=18.5f)
     public static final String PROP_CUR_TEMPERATURE = PROP_PREFIX + "temperature.current";
+    /** Typed key of {@link #PROP_CUR_TEMPERATURE} */
+    public static final PropKey.Float KEY_CUR_TEMPERATURE = new PropKey.Float(PROP_CUR_TEMPERATURE);
 
     /**
      * Construct new instance. Don't call this directly.
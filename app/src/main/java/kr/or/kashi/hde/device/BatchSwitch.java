@@ -18,6 +18,7 @@
 package kr.or.kashi.hde.device;
 
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.HomeDevice;
 
@@ -55,14 +56,20 @@ public class BatchSwitch extends HomeDevice {
     /** Property of bit flags that represents each switch is supported or not */
     @PropertyDef(valueClass=Switch.class, formatHint="bits")
     public static final String PROP_SUPPORTED_SWITCHES  = PROP_PREFIX + "supported_switches";
+    /** Typed key of {@link #PROP_SUPPORTED_SWITCHES} */
+    public static final PropKey.Long KEY_SUPPORTED_SWITCHES = new PropKey.Long(PROP_SUPPORTED_SWITCHES);
 
     /** Property of bit flags that represents each displayable information is supported or not */
     @PropertyDef(valueClass=Display.class, formatHint="bits")
     public static final String PROP_SUPPORTED_DISPLAYS  = PROP_PREFIX + "supported_displays";
+    /** Typed key of {@link #PROP_SUPPORTED_DISPLAYS} */
+    public static final PropKey.Long KEY_SUPPORTED_DISPLAYS = new PropKey.Long(PROP_SUPPORTED_DISPLAYS);
 
     /** Property of bit flags that represents each switch's on/off state */
     @PropertyDef(valueClass=Switch.class, formatHint="bits")
     public static final String PROP_SWITCH_STATES       = PROP_PREFIX + "switch_states";
+    /** Typed key of {@link #PROP_SWITCH_STATES} */
+    public static final PropKey.Long KEY_SWITCH_STATES  = new PropKey.Long(PROP_SWITCH_STATES);
 
     /** Property of bit flags that represents each display is on or not */
     @PropertyDef(valueClass=Display.class, formatHint="bits")
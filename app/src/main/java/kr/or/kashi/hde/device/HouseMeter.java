@@ -18,6 +18,7 @@
 package kr.or.kashi.hde.device;
 
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.HomeDevice;
 
@@ -53,6 +54,8 @@ public class HouseMeter extends HomeDevice {
     /** Property: Indicating what type of device */
     @PropertyDef(valueClass=MeterType.class)
     public static final String PROP_METER_TYPE          = PROP_PREFIX + "meter_type";
+    /** Typed key of {@link #PROP_METER_TYPE} */
+    public static final PropKey.Int KEY_METER_TYPE      = new PropKey.Int(PROP_METER_TYPE);
 
     /** Property: The enabled state of meter */
     @PropertyDef(valueClass=Boolean.class)
@@ -65,6 +68,8 @@ public class HouseMeter extends HomeDevice {
     /** Property: Current measurement value*/
     @PropertyDef(valueClass=Double.class)
     public static final String PROP_CURRENT_METER_VALUE = PROP_PREFIX + "current_meter.value";
+    /** Typed key of {@link #PROP_CURRENT_METER_VALUE} */
+    public static final PropKey.Double KEY_CURRENT_METER_VALUE = new PropKey.Double(PROP_CURRENT_METER_VALUE);
 
     /** Property: Unit for total measurement */
     @PropertyDef(valueClass=MeasureUnit.class)
@@ -73,6 +78,8 @@ public class HouseMeter extends HomeDevice {
     /** Property: Total measurement value */
     @PropertyDef(valueClass=Double.class)
     public static final String PROP_TOTAL_METER_VALUE   = PROP_PREFIX + "total_meter.value";
+    /** Typed key of {@link #PROP_TOTAL_METER_VALUE} */
+    public static final PropKey.Double KEY_TOTAL_METER_VALUE = new PropKey.Double(PROP_TOTAL_METER_VALUE);
 
     /**
      * Construct new instance. Don't call this directly.
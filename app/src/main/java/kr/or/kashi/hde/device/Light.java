@@ -18,6 +18,7 @@
 package kr.or.kashi.hde.device;
 
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.HomeDevice;
 
@@ -55,6 +56,8 @@ public class Light extends HomeDevice {
     /** Property: Whether to support dimming */
     @PropertyDef(valueClass=Boolean.class, defValueB=false)
     public static final String PROP_DIM_SUPPORTED   = PROP_PREFIX + "dim_supported";
+    /** Typed key of {@link #PROP_DIM_SUPPORTED} */
+    public static final PropKey.Bool KEY_DIM_SUPPORTED = new PropKey.Bool(PROP_DIM_SUPPORTED);
 
     /** Property: Minimum level of dimming */
     @PropertyDef(valueClass=Integer.class, defValueI=0x1)
@@ -91,6 +94,8 @@ public class Light extends HomeDevice {
     /** Property: Enter to or exit from the batch-light-off state */
     @PropertyDef(valueClass=Boolean.class)
     public static final String PROP_BATCH_LIGHT_OFF = PROP_PREFIX + "batch_light_off";
+    /** Typed key of {@link #PROP_BATCH_LIGHT_OFF} */
+    public static final PropKey.Bool KEY_BATCH_LIGHT_OFF = new PropKey.Bool(PROP_BATCH_LIGHT_OFF);
 
     /**
      * Construct new instance. Don't call this directly.
@@ -18,6 +18,7 @@
 package kr.or.kashi.hde.device;
 
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.HomeDevice;
 
@@ -49,6 +50,8 @@ public class PowerSaver extends HomeDevice {
     /** Property: Bit fields that is indicating each state is detected or not */
     @PropertyDef(valueClass=State.class, formatHint="bits")
     public static final String PROP_CURRENT_STATES      = PROP_PREFIX + "states.current";
+    /** Typed key of {@link #PROP_CURRENT_STATES} */
+    public static final PropKey.Long KEY_CURRENT_STATES = new PropKey.Long(PROP_CURRENT_STATES);
 
     /** Property: Bit fields that is indicating wheter each {@link Setting} is supproted */
     @PropertyDef(valueClass=Setting.class, formatHint="bits")
@@ -57,6 +60,8 @@ public class PowerSaver extends HomeDevice {
     /** Property: Bit fields that is indicating each setting is set or not */
     @PropertyDef(valueClass=Setting.class, formatHint="bits")
     public static final String PROP_CURRENT_SETTINGS    = PROP_PREFIX + "settings.current";
+    /** Typed key of {@link #PROP_CURRENT_SETTINGS} */
+    public static final PropKey.Long KEY_CURRENT_SETTINGS = new PropKey.Long(PROP_CURRENT_SETTINGS);
 
     /** Property: The level (watt) of standby power consumption that has been set to device */
     @PropertyDef(valueClass=Float.class)
@@ -65,6 +70,8 @@ public class PowerSaver extends HomeDevice {
     /** Property: The level (watt) of current power consumption that is retrieved from device */
     @PropertyDef(valueClass=Float.class)
     public static final String PROP_CURRENT_CONSUMPTION = PROP_PREFIX + "consumption.current";
+    /** Typed key of {@link #PROP_CURRENT_CONSUMPTION} */
+    public static final PropKey.Float KEY_CURRENT_CONSUMPTION = new PropKey.Float(PROP_CURRENT_CONSUMPTION);
 
     /**
      * Construct new instance. Don't call this directly.
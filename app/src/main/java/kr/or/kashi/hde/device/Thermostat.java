@@ -18,6 +18,7 @@
 package kr.or.kashi.hde.device;
 
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.HomeDevice;
 
@@ -41,30 +42,44 @@ public class Thermostat extends HomeDevice {
     /** Property: Bits for indicating each {@link Function} is supported or not */
     @PropertyDef(valueClass=Function.class, formatHint="bits")
     public static final String PROP_SUPPORTED_FUNCTIONS     = PROP_PREFIX + "function.supports";
+    /** Typed key of {@link #PROP_SUPPORTED_FUNCTIONS} */
+    public static final PropKey.Long KEY_SUPPORTED_FUNCTIONS = new PropKey.Long(PROP_SUPPORTED_FUNCTIONS);
 
     /** Property: Bits for indicating each {@link Function} is activated or not */
     @PropertyDef(valueClass=Function.class, formatHint="bits")
     public static final String PROP_FUNCTION_STATES         = PROP_PREFIX + "function.states";
+    /** Typed key of {@link #PROP_FUNCTION_STATES} */
+    public static final PropKey.Long KEY_FUNCTION_STATES    = new PropKey.Long(PROP_FUNCTION_STATES);
 
     /** Property: Minimum level of temperature */
     @PropertyDef(valueClass=Float.class)
     public static final String PROP_MIN_TEMPERATURE         = PROP_PREFIX + "temperature.min";
+    /** Typed key of {@link #PROP_MIN_TEMPERATURE} */
+    public static final PropKey.Float KEY_MIN_TEMPERATURE   = new PropKey.Float(PROP_MIN_TEMPERATURE);
 
     /** Property: Maximum level of temperature */
     @PropertyDef(valueClass=Float.class)
     public static final String PROP_MAX_TEMPERATURE         = PROP_PREFIX + "temperature.max";
+    /** Typed key of {@link #PROP_MAX_TEMPERATURE} */
+    public static final PropKey.Float KEY_MAX_TEMPERATURE   = new PropKey.Float(PROP_MAX_TEMPERATURE);
 
     /** Property: Resolution value of temperature (1.0, 0.5, 0.1 or ...) */
     @PropertyDef(valueClass=Float.class, defValueF=1.0f)
     public static final String PROP_TEMP_RESOLUTION         = PROP_PREFIX + "temperature.resolution";
+    /** Typed key of {@link #PROP_TEMP_RESOLUTION} */
+    public static final PropKey.Float KEY_TEMP_RESOLUTION   = new PropKey.Float(PROP_TEMP_RESOLUTION);
 
     /** Property: Temperature that has been set to device */
     @PropertyDef(valueClass=Float.class)
     public static final String PROP_SETTING_TEMPERATURE     = PROP_PREFIX + "temperature.setting";
+    /** Typed key of {@link #PROP_SETTING_TEMPERATURE} */
+    public static final PropKey.Float KEY_SETTING_TEMPERATURE = new PropKey.Float(PROP_SETTING_TEMPERATURE);
 
     /** Property: Current temperature */
     @PropertyDef(valueClass=Float.class)
     public static final String PROP_CURRENT_TEMPERATURE     = PROP_PREFIX + "temperature.current";
+    /** Typed key of {@link #PROP_CURRENT_TEMPERATURE} */
+    public static final PropKey.Float KEY_CURRENT_TEMPERATURE = new PropKey.Float(PROP_CURRENT_TEMPERATURE);
 
     /**
      * Construct new instance. Don't call this directly.
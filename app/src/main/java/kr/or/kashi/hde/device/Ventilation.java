@@ -18,6 +18,7 @@
 package kr.or.kashi.hde.device;
 
 import kr.or.kashi.hde.base.PropertyDef;
+import kr.or.kashi.hde.base.PropKey;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.HomeDevice;
 
@@ -70,22 +71,32 @@ public class Ventilation extends HomeDevice {
     /** Property: Current operation mode. */
     @PropertyDef(valueClass=Mode.class)
     public static final String PROP_OPERATION_MODE      = PROP_PREFIX + "operation.mode";
+    /** Typed key of {@link #PROP_OPERATION_MODE} */
+    public static final PropKey.Long KEY_OPERATION_MODE = new PropKey.Long(PROP_OPERATION_MODE);
 
     /** Property: Bits of {@link Alarm} that is indicating of each alarmed state. */
     @PropertyDef(valueClass=Alarm.class, formatHint="bits")
     public static final String PROP_OPERATION_ALARM     = PROP_PREFIX + "operation.alarm";
+    /** Typed key of {@link #PROP_OPERATION_ALARM} */
+    public static final PropKey.Long KEY_OPERATION_ALARM = new PropKey.Long(PROP_OPERATION_ALARM);
 
     /** Property: Current speed of fan */
     @PropertyDef(valueClass=Integer.class)
     public static final String PROP_CUR_FAN_SPEED       = PROP_PREFIX + "fan_speed.current";
+    /** Typed key of {@link #PROP_CUR_FAN_SPEED} */
+    public static final PropKey.Int KEY_CUR_FAN_SPEED   = new PropKey.Int(PROP_CUR_FAN_SPEED);
 
     /** Property: Minimum range of fan speed */
     @PropertyDef(valueClass=Integer.class)
     public static final String PROP_MIN_FAN_SPEED       = PROP_PREFIX + "fan_speed.minimum";
+    /** Typed key of {@link #PROP_MIN_FAN_SPEED} */
+    public static final PropKey.Int KEY_MIN_FAN_SPEED   = new PropKey.Int(PROP_MIN_FAN_SPEED);
 
     /** Property: Maximum range of fan speed */
     @PropertyDef(valueClass=Integer.class)
     public static final String PROP_MAX_FAN_SPEED       = PROP_PREFIX + "fan_speed.maximum";
+    /** Typed key of {@link #PROP_MAX_FAN_SPEED} */
+    public static final PropKey.Int KEY_MAX_FAN_SPEED   = new PropKey.Int(PROP_MAX_FAN_SPEED);
 
     /**
      * Construct new instance. Don't call this directly.
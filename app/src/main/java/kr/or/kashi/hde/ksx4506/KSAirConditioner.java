@@ -176,11 +176,11 @@ public class KSAirConditioner extends KSDeviceContextBase {
         outData.append(0); // error code
 
         int outOpData = 0;
-        if (props.get(HomeDevice.PROP_ONOFF, Boolean.class)) {
+        if (props.getBoolean(HomeDevice.KEY_ONOFF)) {
             outOpData |= (1 << 4);
         }
 
-        switch (props.get(AirConditioner.PROP_OPERATION_MODE, Integer.class)) {
+        switch (props.getInt(AirConditioner.KEY_OPERATION_MODE)) {
             case AirConditioner.OpMode.AUTO:     outOpData |= 0; break;
             case AirConditioner.OpMode.COOLING:  outOpData |= 1; break;
             case AirConditioner.OpMode.DEHUMID:  outOpData |= 2; break;
@@ -192,23 +192,23 @@ public class KSAirConditioner extends KSDeviceContextBase {
         outData.append(outOpData);
 
         int outFanSpeed = 0;
-        int curFanMode = props.get(AirConditioner.PROP_FAN_MODE, Integer.class);
+        int curFanMode = props.getInt(AirConditioner.KEY_FAN_MODE);
         if (curFanMode == AirConditioner.FanMode.AUTO) outFanSpeed = 0x0;
         else if (curFanMode == AirConditioner.FanMode.NATURAL) outFanSpeed = 0xF;
-        else outFanSpeed = props.get(AirConditioner.PROP_CUR_FAN_SPEED, Integer.class);
+        else outFanSpeed = props.getInt(AirConditioner.KEY_CUR_FAN_SPEED);
 
         int outFlowDir = 0;
-        int curFlowDir = props.get(AirConditioner.PROP_FLOW_DIRECTION, Integer.class);
+        int curFlowDir = props.getInt(AirConditioner.KEY_FLOW_DIRECTION);
         if (curFlowDir == AirConditioner.FlowDir.MANUAL) outFlowDir = 0x0;
         if (curFlowDir == AirConditioner.FlowDir.AUTO) outFlowDir = 0x1;
 
         outData.append(((outFlowDir << 4) & 0xF0) | (outFanSpeed & 0x0F));
 
-        final float tempRes = props.get(AirConditioner.PROP_TEMP_RESOLUTION, Float.class);
-        final float minTemp = props.get(AirConditioner.PROP_MIN_TEMPERATURE, Float.class);
-        final float maxTemp = props.get(AirConditioner.PROP_MAX_TEMPERATURE, Float.class);
-        final float reqTemp = props.get(AirConditioner.PROP_REQ_TEMPERATURE, Float.class);
-        final float curTemp = props.get(AirConditioner.PROP_CUR_TEMPERATURE, Float.class);
+        final float tempRes = props.getFloat(AirConditioner.KEY_TEMP_RESOLUTION);
+        final float minTemp = props.getFloat(AirConditioner.KEY_MIN_TEMPERATURE);
+        final float maxTemp = props.getFloat(AirConditioner.KEY_MAX_TEMPERATURE);
+        final float reqTemp = props.getFloat(AirConditioner.KEY_REQ_TEMPERATURE);
+        final float curTemp = props.getFloat(AirConditioner.KEY_CUR_TEMPERATURE);
 
         outData.append(KSUtils.makeTemperatureByte(reqTemp, minTemp, maxTemp, tempRes));
         outData.append(KSUtils.makeTemperatureByte(curTemp, minTemp, maxTemp, tempRes));
@@ -246,7 +246,7 @@ public class KSAirConditioner extends KSDeviceContextBase {
         final byte data2 = data[offset + 2];
         final int fanSpeed = data2 & 0x0F;
 
-        int newFanSpeed = outProps.get(AirConditioner.PROP_CUR_FAN_SPEED, Integer.class);
+        int newFanSpeed = outProps.getInt(AirConditioner.KEY_CUR_FAN_SPEED);
         int newFanMode = AirConditioner.FanMode.MANUAL;
         if (fanSpeed == 0x0) newFanMode = AirConditioner.FanMode.AUTO;
         else if (fanSpeed == 0xF) newFanMode = AirConditioner.FanMode.NATURAL;
@@ -260,8 +260,8 @@ public class KSAirConditioner extends KSDeviceContextBase {
         if (flowDir == 1) newFlowDir = AirConditioner.FlowDir.AUTO;
         outProps.put(AirConditioner.PROP_FLOW_DIRECTION, newFlowDir);
 
-        final float settingTemp = outProps.get(AirConditioner.PROP_REQ_TEMPERATURE, Float.class);
-        final float currentTemp = outProps.get(AirConditioner.PROP_CUR_TEMPERATURE, Float.class);
+        final float settingTemp = outProps.getFloat(AirConditioner.KEY_REQ_TEMPERATURE);
+        final float currentTemp = outProps.getFloat(AirConditioner.KEY_CUR_TEMPERATURE);
         float newSettingTemp = KSUtils.parseTemperatureByte(data[offset + 3]);
         float newCurrentTemp = KSUtils.parseTemperatureByte(data[offset + 4]);
         if (!KSUtils.floatEquals(newSettingTemp, settingTemp) || !KSUtils.floatEquals(newCurrentTemp, currentTemp)) {
@@ -305,12 +305,12 @@ public class KSAirConditioner extends KSDeviceContextBase {
     protected void encodeCharacteristicRsp(PropertyMap props, ByteArrayBuffer data) {
         data.append(0); // no error
 
-        final int supportedModes = props.get(AirConditioner.PROP_SUPPORTED_MODES, Integer.class);
+        final int supportedModes = props.getInt(AirConditioner.KEY_SUPPORTED_MODES);
         mSupportsCooling = (supportedModes & AirConditioner.OpMode.COOLING) != 0;
         mSupportsHeating = (supportedModes & AirConditioner.OpMode.HEATING) != 0;
         mSupportsReservedMode = (supportedModes & AirConditioner.OpMode.RESERVED) != 0;
 
-        final float tempRes = props.get(AirConditioner.PROP_TEMP_RESOLUTION, Float.class);
+        final float tempRes = props.getFloat(AirConditioner.KEY_TEMP_RESOLUTION);
         mSupportsHalfDegree = Utils.floatEquals(tempRes, 0.5f);
 
         int data1 = 0;
@@ -325,13 +325,13 @@ public class KSAirConditioner extends KSDeviceContextBase {
 
         data.append(data1);             // DATA 1
 
-        final float maxTemp = props.get(AirConditioner.PROP_MAX_TEMPERATURE, Float.class);
-        final float minTemp = props.get(AirConditioner.PROP_MIN_TEMPERATURE, Float.class);
+        final float maxTemp = props.getFloat(AirConditioner.KEY_MAX_TEMPERATURE);
+        final float minTemp = props.getFloat(AirConditioner.KEY_MIN_TEMPERATURE);
         final byte maxTempByte = KSUtils.makeTemperatureByte(maxTemp, maxTemp, maxTemp, tempRes);
         final byte minTempByte = KSUtils.makeTemperatureByte(minTemp, minTemp, minTemp, tempRes);
         mMaxCoolingTemp = mMaxHeatingTemp = maxTemp; // TODO:
         mMinCoolingTemp = mMinHeatingTemp = minTemp; // TODO:
-        mMaxFanSpeed = props.get(AirConditioner.PROP_MAX_FAN_SPEED, Integer.class);
+        mMaxFanSpeed = props.getInt(AirConditioner.KEY_MAX_FAN_SPEED);
         mNumberOfDevices = isSingleDevice() ? 1 : getChildCount();
 
         data.append(maxTempByte);       // DATA 2
@@ -511,7 +511,7 @@ public class KSAirConditioner extends KSDeviceContextBase {
         }
 
         int fanMode = AirConditioner.FanMode.MANUAL;
-        int fanSpeed = outProps.get(AirConditioner.PROP_CUR_FAN_SPEED, Integer.class);
+        int fanSpeed = outProps.getInt(AirConditioner.KEY_CUR_FAN_SPEED);
         int fanSpeedByte = packet.data[0] & 0xFF;
         if (fanSpeedByte == 0x00) {
             fanMode = AirConditioner.FanMode.AUTO;
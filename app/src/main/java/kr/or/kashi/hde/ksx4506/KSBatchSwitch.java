@@ -19,7 +19,6 @@ package kr.or.kashi.hde.ksx4506;
 
 import android.content.Context;
 import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import kr.or.kashi.hde.base.ByteArrayBuffer;
@@ -67,7 +66,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
     public KSBatchSwitch(MainContext mainContext, Map defaultProps) {
         super(mainContext, defaultProps, BatchSwitch.class);
 
-        mReqTimeoutHandler = new Handler(Looper.getMainLooper());
+        mReqTimeoutHandler = new Handler(mainContext.getRxLooper());
 
         if (isMaster()) {
             // Register the tasks to be performed when specific property changes.
@@ -91,6 +90,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
         mOutingSettingReqTriggered = false;
         mElevatorUpCallReqTriggered = false;
         mElevatorDownCallReqTriggered = false;
+        invalidateStatusRspCache();
         super.onDetachedFromStream();
     }
 
@@ -146,8 +146,8 @@ public class KSBatchSwitch extends KSDeviceContextBase {
 
         data.append(0); // no error
 
-        final long supportedSwitches = outProps.get(BatchSwitch.PROP_SUPPORTED_SWITCHES, Long.class);
-        final long supportedDisplays = outProps.get(BatchSwitch.PROP_SUPPORTED_DISPLAYS, Long.class);
+        final long supportedSwitches = outProps.getLong(BatchSwitch.KEY_SUPPORTED_SWITCHES);
+        final long supportedDisplays = outProps.getLong(BatchSwitch.KEY_SUPPORTED_DISPLAYS);
 
         int supportData = 0;
         if ((supportedSwitches | BatchSwitch.Switch.GAS_LOCKING) != 0) supportData |= (1 << 0);
@@ -266,7 +266,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
     }
 
     protected void makeStatusRspBytes(PropertyMap props, ByteArrayBuffer outData) {
-        final long states = props.get(BatchSwitch.PROP_SWITCH_STATES, Long.class);
+        final long states = props.getLong(BatchSwitch.KEY_SWITCH_STATES);
 
         int data1 = 0;
         if (mGasLockingReqTriggered) data1 |= (1 << 0);
@@ -355,6 +355,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
         }
 
         if (newReqTriggered) {
+            invalidateStatusRspCache();
             startTimeoutIfReqTriggered();
         }
 
@@ -401,16 +402,18 @@ public class KSBatchSwitch extends KSDeviceContextBase {
             }
         }
 
+        final PropertyMap.BitsEditor statesEditor = outProps.editBits(BatchSwitch.PROP_SWITCH_STATES);
+
         if ((difStates & BatchSwitch.Switch.GAS_LOCKING) != 0) {
             // Update the property map with changed value directly since wallpad manages this state.
-            outProps.putBits(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.GAS_LOCKING, newStates);
+            statesEditor.copy(BatchSwitch.Switch.GAS_LOCKING, newStates);
             // Reschedule the status request command since the states that must be reported to the device.
             requestUpdate();
         }
 
         if ((difStates & BatchSwitch.Switch.OUTING_SETTING) != 0) {
             // Update the property map with changed value directly since wallpad manages this state.
-            outProps.putBits(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.OUTING_SETTING, newStates);
+            statesEditor.copy(BatchSwitch.Switch.OUTING_SETTING, newStates);
             // Reschedule the status request command since the states that must be reported to the device.
             requestUpdate();
         }
@@ -418,17 +421,19 @@ public class KSBatchSwitch extends KSDeviceContextBase {
         if ((difStates & BatchSwitch.Switch.ELEVATOR_UP_CALL) != 0) {
             // There's no way to update elevator's state to device, so don't allow set the bit but clear.
             if ((newStates & BatchSwitch.Switch.ELEVATOR_UP_CALL) == 0) {
-                outProps.putBits(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.ELEVATOR_UP_CALL, 0);
+                statesEditor.set(BatchSwitch.Switch.ELEVATOR_UP_CALL, false);
             }
         }
 
         if ((difStates & BatchSwitch.Switch.ELEVATOR_DOWN_CALL) != 0) {
             // There's no way to update elevator's state to device, so don't allow set the bit but clear.
             if ((newStates & BatchSwitch.Switch.ELEVATOR_DOWN_CALL) == 0) {
-                outProps.putBits(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.ELEVATOR_DOWN_CALL, 0);
+                statesEditor.set(BatchSwitch.Switch.ELEVATOR_DOWN_CALL, false);
             }
         }
 
+        statesEditor.apply(); // Put all the changed bits at once
+
         boolean needSendSingleControlCmd = false;
         needSendSingleControlCmd |= ((difStates & BatchSwitch.Switch.BATCH_LIGHT_OFF) != 0);
         needSendSingleControlCmd |= ((difStates & BatchSwitch.Switch.POWER_SAVING) != 0);
@@ -472,6 +477,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
         mOutingSettingReqTriggered = (newStates & BatchSwitch.Switch.OUTING_SETTING) != 0;
         mElevatorUpCallReqTriggered = (newStates & BatchSwitch.Switch.ELEVATOR_UP_CALL) != 0;
         mElevatorDownCallReqTriggered = (newStates & BatchSwitch.Switch.ELEVATOR_DOWN_CALL) != 0;
+        invalidateStatusRspCache();
 
         // Reflect requested properties
         outProps.put(BatchSwitch.PROP_SWITCH_STATES, newStates);
@@ -512,14 +518,14 @@ public class KSBatchSwitch extends KSDeviceContextBase {
     }
 
     protected byte[] makeStatusReqData(PropertyMap props, byte[] data) {
-        long states = props.get(BatchSwitch.PROP_SWITCH_STATES, Long.class);
+        long states = props.getLong(BatchSwitch.KEY_SWITCH_STATES);
         if ((states & BatchSwitch.Switch.GAS_LOCKING) == 0) data[0] |= (byte)(1 << 0);
         if ((states & BatchSwitch.Switch.OUTING_SETTING) != 0) data[0] |= (byte)(1 << 1);
         return data;
     }
 
     protected void parseStatusReqData(byte[] data, PropertyMap outProps) {
-        long states = outProps.get(BatchSwitch.PROP_SWITCH_STATES, Long.class);
+        long states = outProps.getLong(BatchSwitch.KEY_SWITCH_STATES);
 
         if (!mGasLockingReqTriggered) {
             if ((data[0] & (1 << 0)) == 0) {
@@ -549,7 +555,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
     }
 
     private void parseSingleControlReqData(byte[] data, PropertyMap outProps) {
-        long states = outProps.get(BatchSwitch.PROP_SWITCH_STATES, Long.class);
+        long states = outProps.getLong(BatchSwitch.KEY_SWITCH_STATES);
 
         if ((data[0] & (1 << 0)) == 0) {
             states |= BatchSwitch.Switch.BATCH_LIGHT_OFF;
@@ -628,6 +634,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
                                 "got:" + elevatorCallReqGot + " failed:" + elevatorCallFailed);
         }
 
+        invalidateStatusRspCache();
         return data;
     }
 
@@ -639,25 +646,30 @@ public class KSBatchSwitch extends KSDeviceContextBase {
         final boolean elevatorCallReqGot  = ((data[0] & (1 << 4)) != 0);
         final boolean elevatorCallFailed  = ((data[0] & (1 << 5)) != 0);
 
+        final PropertyMap.BitsEditor statesEditor = outProps.editBits(BatchSwitch.PROP_SWITCH_STATES);
+
         if (mGasLockingReqTriggered) {
             boolean gasLockingState = gasLockingReqGot && !gasLockingFailed;
-            outProps.putBit(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.GAS_LOCKING, gasLockingState);
+            statesEditor.set(BatchSwitch.Switch.GAS_LOCKING, gasLockingState);
             mGasLockingReqTriggered = false;
         }
 
         if (mOutingSettingReqTriggered) {
             boolean outingSettingState = outingSettingReqGot && !outingSettingFailed;
-            outProps.putBit(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.OUTING_SETTING, outingSettingState);
+            statesEditor.set(BatchSwitch.Switch.OUTING_SETTING, outingSettingState);
             mOutingSettingReqTriggered = false;
         }
 
         if (mElevatorUpCallReqTriggered || mElevatorDownCallReqTriggered) {
             // TODO: Clear now? or when?
-            outProps.putBit(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.ELEVATOR_UP_CALL, false);
-            outProps.putBit(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.ELEVATOR_DOWN_CALL, false);
+            statesEditor.set(BatchSwitch.Switch.ELEVATOR_UP_CALL, false);
+            statesEditor.set(BatchSwitch.Switch.ELEVATOR_DOWN_CALL, false);
             mElevatorUpCallReqTriggered = false;
             mElevatorDownCallReqTriggered = false;
         }
+
+        statesEditor.apply();
+        invalidateStatusRspCache();
     }
 
     protected void startTimeoutIfReqTriggered() {
@@ -677,7 +689,7 @@ public class KSBatchSwitch extends KSDeviceContextBase {
     protected void clearReqTriggering() {
         mReqTimeoutHandler.removeCallbacksAndMessages(null);
 
-        long states = mRxPropertyMap.get(BatchSwitch.PROP_SWITCH_STATES, Long.class);
+        long states = mRxPropertyMap.getLong(BatchSwitch.KEY_SWITCH_STATES);
 
         if (mGasLockingReqTriggered) {
             if (isMaster()) {
@@ -707,5 +719,6 @@ public class KSBatchSwitch extends KSDeviceContextBase {
 
         mRxPropertyMap.put(BatchSwitch.PROP_SWITCH_STATES, states);
         commitPropertyChanges(mRxPropertyMap);
+        invalidateStatusRspCache();
     }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.ksx4506;
+
+import kr.or.kashi.hde.base.ByteArrayBuffer;
+
+/**
+ * [KS X 4506] Codec of numbers in BCD (binary-coded decimal) and fixed-point
+ * decimal numbers made of them, such as the values of meters and power. Each
+ * pair of digits is converted by lookup tables without making any string.
+ *
+ * Digits are addressed by the offset of nibble from the start of data, so that
+ * the first digit can be at either the high (even offset) or the low (odd
+ * offset) nibble of a byte.
+ */
+public final class KSBcd {
+    /** Max number of digits that can be packed in a long */
+    public static final int MAX_DIGITS = 16;
+
+    private static final long[] POW10 = new long[MAX_DIGITS + 1];
+    private static final byte[] BIN_TO_BCD = new byte[100];
+    private static final byte[] BCD_TO_BIN = new byte[256];
+
+    static {
+        POW10[0] = 1L;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10L;
+        }
+        for (int i = 0; i < BIN_TO_BCD.length; i++) {
+            BIN_TO_BCD[i] = (byte) (((i / 10) << 4) | (i % 10));
+        }
+        for (int i = 0; i < BCD_TO_BIN.length; i++) {
+            // Nibbles over 9 are not valid but weighted as they are, like before.
+            BCD_TO_BIN[i] = (byte) (((i >> 4) * 10) + (i & 0x0F));
+        }
+    }
+
+    private KSBcd() {}
+
+    /** Returns 10 to the power of the digits. */
+    public static long pow10(int digits) {
+        return POW10[digits];
+    }
+
+    /** Converts a byte of two BCD digits to the number (0 ~ 99). */
+    public static int fromBcd(int bcdByte) {
+        return BCD_TO_BIN[bcdByte & 0xFF];
+    }
+
+    /** Converts the number (0 ~ 99) to a byte of two BCD digits. */
+    public static int toBcd(int value) {
+        return BIN_TO_BCD[value] & 0xFF;
+    }
+
+    /**
+     * Packs the lowest digits of the value into nibbles of long, the last digit
+     * at the lowest nibble. The higher digits that don't fit are dropped.
+     */
+    public static long pack(long value, int digits) {
+        long packed = 0L;
+        for (int shift = 0; shift < digits * 4; shift += 8) {
+            packed |= ((long) BIN_TO_BCD[(int) (value % 100L)] & 0xFFL) << shift;
+            value /= 100L;
+        }
+        if ((digits & 1) != 0) {
+            packed &= (1L << (digits * 4)) - 1L; // Drop the digit over
+        }
+        return packed;
+    }
+
+    /** Reads the number of digits starting at the nibble offset. */
+    public static long readDigits(byte[] data, int nibbleOffset, int digits) {
+        long value = 0L;
+        int nibble = nibbleOffset;
+        final int end = nibbleOffset + digits;
+
+        if ((nibble & 1) != 0 && nibble < end) {
+            value = data[nibble >> 1] & 0x0F;
+            nibble++;
+        }
+        while (nibble + 2 <= end) {
+            value = value * 100L + BCD_TO_BIN[data[nibble >> 1] & 0xFF];
+            nibble += 2;
+        }
+        if (nibble < end) {
+            value = value * 10L + ((data[nibble >> 1] & 0xF0) >> 4);
+        }
+
+        return value;
+    }
+
+    /** Reads the fixed-point number of digits that has given digits of fraction. */
+    public static double readFixed(byte[] data, int nibbleOffset, int digits, int fractionDigits) {
+        return (double) readDigits(data, nibbleOffset, digits) / (double) POW10[fractionDigits];
+    }
+
+    /** Same as {@link #readFixed(byte[], int, int, int)}, but in float. */
+    public static float readFixedFloat(byte[] data, int nibbleOffset, int digits, int fractionDigits) {
+        return (float) readDigits(data, nibbleOffset, digits) / (float) POW10[fractionDigits];
+    }
+
+    /**
+     * Scales the value by the digits of fraction, and rounds it half up as
+     * the formatting of decimal does. Negative value is treated as zero.
+     */
+    public static long toFixed(double value, int fractionDigits) {
+        if (!(value > 0.0)) return 0L;
+        final double scaled = value * (double) POW10[fractionDigits];
+        long fixed = (long) scaled;
+        // Tolerate the error of binary fraction, e.g. 1.0005 is 1.000499.. in double.
+        if (scaled - (double) fixed >= 0.5 - 1e-9) fixed++;
+        return fixed;
+    }
+
+    /**
+     * Appends the lowest digits of the value in bytes of BCD. The number of
+     * digits must be even, and the higher digits that don't fit are dropped.
+     */
+    public static void append(ByteArrayBuffer outData, long value, int digits) {
+        final long packed = pack(value, digits);
+        for (int shift = (digits - 2) * 4; shift >= 0; shift -= 8) {
+            outData.append((int) (packed >> shift) & 0xFF);
+        }
+    }
+
+    /** Appends the fixed-point number in bytes of BCD, see {@link #append(ByteArrayBuffer, long, int)}. */
+    public static void appendFixed(ByteArrayBuffer outData, double value, int digits, int fractionDigits) {
+        append(outData, toFixed(value, fractionDigits), digits);
+    }
+}
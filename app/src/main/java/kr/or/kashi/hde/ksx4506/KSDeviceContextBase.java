@@ -33,7 +33,10 @@ import kr.or.kashi.hde.MainContext;
 import kr.or.kashi.hde.PacketSchedule;
 import kr.or.kashi.hde.HomeDevice;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -65,6 +68,87 @@ public abstract class KSDeviceContextBase extends DeviceContextBase {
     private PacketSchedule mAutoStatusReqSchedule = null;
     private int mAutoStatusReqScheduleError = 0;
 
+    // In slave mode, the response of status request is encoded only once and
+    // reused until the state of this context (or children) is changed.
+    private volatile StatusRspCache mStatusRspCache = null;
+    // The requests answered by respondFast() in order of receiving, that must
+    // never be answered again when their frames are parsed later.
+    private static final int MAX_FAST_STATUS_RSPS = 8;
+    private final ArrayDeque<StatusRspCache> mFastStatusRsps = new ArrayDeque<>(); // Guarded by itself
+    private boolean mMutingStatusRsp = false;
+    private boolean mCapturingStatusRsp = false;
+    private KSEncodedPacket mCapturedStatusRsp = null;
+    private int mCapturedStatusRspCount = 0;
+
+    // The status response that is same as the last one isn't parsed again as
+    // long as the state of this context hasn't been changed since parsed.
+    private LastStatusRsp mLastStatusRsp = null;
+    private boolean mErrorOccurred = false;
+
+    // The status response of full range (0x?F) is split only once by the group
+    // context into the offsets of data of its single devices (index 1~14), then
+    // each single device parses only its part without validating whole data.
+    private final int[] mStatusRspPartOffsets = new int[0x10];
+    private int mStatusRspPartOffset = -1; // >= 0 while parsing the part
+
+    private static class StatusRspCache {
+        final int reqSubId;
+        final byte[] reqData;
+        final long stateVersion;
+        final KSEncodedPacket rspPacket;
+        final @ParseResult int result;
+
+        StatusRspCache(KSPacket reqPacket, long stateVersion, KSEncodedPacket rspPacket, int result) {
+            this.reqSubId = reqPacket.deviceSubId;
+            this.reqData = reqPacket.data.clone();
+            this.stateVersion = stateVersion;
+            this.rspPacket = rspPacket;
+            this.result = result;
+        }
+
+        boolean matches(KSPacket reqPacket, long stateVersion) {
+            return this.stateVersion == stateVersion && matchesRequest(reqPacket);
+        }
+
+        boolean matches(byte[] frame, int offset, long stateVersion) {
+            return this.stateVersion == stateVersion && matchesRequest(frame, offset);
+        }
+
+        boolean matchesRequest(KSPacket reqPacket) {
+            return this.reqSubId == reqPacket.deviceSubId
+                    && Arrays.equals(this.reqData, reqPacket.data);
+        }
+
+        boolean matchesRequest(byte[] frame, int offset) {
+            if (this.reqSubId != (frame[offset + 2] & 0xFF)) return false;
+            final int length = frame[offset + 4] & 0xFF;
+            if (this.reqData.length != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (this.reqData[i] != frame[offset + 5 + i]) return false;
+            }
+            return true;
+        }
+    }
+
+    private static class LastStatusRsp {
+        final int subId;
+        final byte[] data;
+        final @ParseResult int result;
+        long stateVersion = 0L; // Set after committed, 0 never matches
+
+        LastStatusRsp(KSPacket packet, int result) {
+            this.subId = packet.deviceSubId;
+            this.data = packet.data.clone();
+            this.result = result;
+        }
+
+        boolean matches(KSPacket packet, long stateVersion) {
+            return this.stateVersion == stateVersion
+                    && this.subId == packet.deviceSubId
+                    && Arrays.equals(this.data, packet.data);
+        }
+    }
+
     protected PropertyTask mSingleControlTask = new PropertyTask() {
         @Override
         public boolean execTask(PropertyMap reqProps, PropertyMap outProps) {
@@ -128,6 +212,8 @@ public abstract class KSDeviceContextBase extends DeviceContextBase {
         mCharacteristicRetrieved = false;
         cancelAllAutoSchedules();
         mAutoStatusReqScheduleError = 0;
+        clearFastStatusRsp();
+        mLastStatusRsp = null;
         super.onDetachedFromStream(); // call super
     }
 
@@ -326,12 +412,18 @@ public abstract class KSDeviceContextBase extends DeviceContextBase {
 
     public @ParseResult int parsePayload(KSPacket packet, PropertyMap outProps) {
         switch (packet.commandType) {
-            case CMD_STATUS_REQ: return parseStatusReq(packet, outProps);
-            case CMD_STATUS_RSP: return parseStatusRsp(packet, outProps);
+            case CMD_STATUS_REQ: {
+                if (isSlave()) return parseStatusReqWithCache(packet, outProps);
+                return parseStatusReq(packet, outProps);
+            }
+            case CMD_STATUS_RSP: return parseStatusRspIfChanged(packet, outProps);
             case CMD_CHARACTERISTIC_REQ: return parseCharacteristicReq(packet, outProps);
             case CMD_CHARACTERISTIC_RSP: {
                 int res = parseCharacteristicRsp(packet, outProps);
                 if (res >= PARSE_OK_NONE) mCharacteristicRetrieved = true;
+                // Status response may be parsed differently by the characteristic
+                // that is kept in fields, not in properties (e.g. count of lights).
+                mLastStatusRsp = null;
                 return res;
             }
             case CMD_SINGLE_CONTROL_REQ: return parseSingleControlReq(packet, outProps);
@@ -340,11 +432,228 @@ public abstract class KSDeviceContextBase extends DeviceContextBase {
         return PARSE_OK_NONE;
     }
 
+    /**
+     * Returns the encoded response for the frame of request if it can be answered
+     * without parsing, that is, the status request whose response is cached and
+     * still valid. This is called in the thread of port (see SlaveResponder), and
+     * the request answered here is skipped to respond when it's parsed later.
+     *
+     * @hide
+     */
+    public byte[] respondFast(byte[] frame, int offset) {
+        if (!isSlave() || (frame[offset + 3] & 0xFF) != CMD_STATUS_REQ) {
+            return null;
+        }
+
+        final StatusRspCache cache = mStatusRspCache;
+        if (cache == null || !cache.matches(frame, offset, getStateVersion())) {
+            return null;
+        }
+
+        synchronized (mFastStatusRsps) {
+            if (mFastStatusRsps.size() >= MAX_FAST_STATUS_RSPS) {
+                mFastStatusRsps.pollFirst(); // Frame of it must have been lost
+            }
+            mFastStatusRsps.addLast(cache);
+        }
+        return cache.rspPacket.frame();
+    }
+
+    /**
+     * Forgets all the requests answered by {@link #respondFast}, when no frame
+     * of them will be parsed any more, e.g. detached from stream.
+     *
+     * @hide
+     */
+    public void clearFastStatusRsp() {
+        synchronized (mFastStatusRsps) {
+            mFastStatusRsps.clear();
+        }
+    }
+
+    /**
+     * Forgets the request answered by {@link #respondFast}, whose frame has been
+     * thrown away before parsed. The oldest one is forgotten if same requests have
+     * been answered, since the frames thrown away are older than any frame to come.
+     *
+     * @hide
+     */
+    public void forgetFastStatusRsp(byte[] frame, int offset) {
+        if ((frame[offset + 3] & 0xFF) != CMD_STATUS_REQ) return;
+        synchronized (mFastStatusRsps) {
+            final Iterator<StatusRspCache> it = mFastStatusRsps.iterator();
+            while (it.hasNext()) {
+                if (it.next().matchesRequest(frame, offset)) {
+                    it.remove();
+                    return;
+                }
+            }
+        }
+    }
+
+    private StatusRspCache consumeFastStatusRsp(KSPacket packet) {
+        synchronized (mFastStatusRsps) {
+            // Matched by the request only, since the state may be changed since
+            // answered, and the answered request must never be answered again.
+            StatusRspCache answered = null;
+            for (StatusRspCache cache : mFastStatusRsps) {
+                if (cache.matchesRequest(packet)) {
+                    answered = cache;
+                    break;
+                }
+            }
+            if (answered == null) return null;
+
+            // Frames are parsed in order, so the ones answered before have been lost.
+            while (mFastStatusRsps.pollFirst() != answered);
+            return answered;
+        }
+    }
+
+    /**
+     * Invalidates the status response cached in slave mode. Call this whenever
+     * any field (not property) that the response is made from is changed.
+     */
+    protected void invalidateStatusRspCache() {
+        mStatusRspCache = null;
+        // Also bump the version, not to cache the response being made now.
+        invalidateState();
+    }
+
+    private @ParseResult int parseStatusReqWithCache(KSPacket packet, PropertyMap outProps) {
+        // The request has been answered already by respondFast(), and nothing
+        // can be changed by parsing it if the state is still same as the cache.
+        final StatusRspCache answered = consumeFastStatusRsp(packet);
+        if (answered != null) {
+            if (answered.stateVersion == getStateVersion()) {
+                return answered.result;
+            }
+            // Parse again just for side effects, but never respond twice.
+            mMutingStatusRsp = true;
+            try {
+                return parseStatusReq(packet, outProps);
+            } finally {
+                mMutingStatusRsp = false;
+            }
+        }
+
+        // Read the version before making response, so any change in the middle
+        // of making it invalidates the response at next time.
+        final long stateVersion = getStateVersion();
+
+        final StatusRspCache cache = mStatusRspCache;
+        if (cache != null && cache.matches(packet, stateVersion)) {
+            mMainContext.sendPacket(this, cache.rspPacket);
+            return cache.result;
+        }
+
+        @ParseResult int res;
+        mCapturingStatusRsp = true;
+        try {
+            res = parseStatusReq(packet, outProps);
+        } finally {
+            mCapturingStatusRsp = false;
+        }
+
+        // Only the response that is sent alone can be reused.
+        if (res >= PARSE_OK_NONE && mCapturedStatusRsp != null && mCapturedStatusRspCount == 1) {
+            mStatusRspCache = new StatusRspCache(packet, stateVersion, mCapturedStatusRsp, res);
+        } else {
+            mStatusRspCache = null;
+        }
+        mCapturedStatusRsp = null;
+        mCapturedStatusRspCount = 0;
+
+        return res;
+    }
+
+    @Override
+    public @ParseResult int parsePacket(HomePacket packet) {
+        final int res = super.parsePacket(packet);
+
+        // Take the version after the changes by the response have been committed.
+        final LastStatusRsp lastRsp = mLastStatusRsp;
+        if (lastRsp != null && lastRsp.stateVersion == 0L) {
+            lastRsp.stateVersion = getStateVersion();
+        }
+
+        return res;
+    }
+
+    private @ParseResult int parseStatusRspIfChanged(KSPacket packet, PropertyMap outProps) {
+        // Nothing can be changed by parsing same data again over same state.
+        final LastStatusRsp lastRsp = mLastStatusRsp;
+        if (lastRsp != null && lastRsp.matches(packet, getStateVersion())) {
+            return lastRsp.result;
+        }
+
+        mErrorOccurred = false;
+        final @ParseResult int res = (mStatusRspPartOffset >= 0)
+                ? parseStatusRspPart(packet, mStatusRspPartOffset, outProps)
+                : parseStatusRsp(packet, outProps);
+
+        // Error should be notified every time, so is not skipped.
+        if (res > PARSE_OK_NONE && res != PARSE_OK_ERROR_RECEIVED && !mErrorOccurred) {
+            mLastStatusRsp = new LastStatusRsp(packet, res);
+        } else {
+            mLastStatusRsp = null;
+        }
+
+        return res;
+    }
+
+    /**
+     * Splits the status response of full range into the parts of single devices.
+     * @return The offsets of the part by index of single device (1~14), -1 if
+     *         the device should parse whole data, or {@code null} if not split.
+     *
+     * @hide
+     */
+    public int[] splitStatusRsp(KSPacket packet) {
+        if (packet.commandType != CMD_STATUS_RSP || !getDeviceSubId().hasFull()) {
+            return null;
+        }
+        Arrays.fill(mStatusRspPartOffsets, -1);
+        return splitStatusRspParts(packet, mStatusRspPartOffsets) ? mStatusRspPartOffsets : null;
+    }
+
+    /**
+     * Parses the packet that has been split by the group context, see {@link #splitStatusRsp}.
+     *
+     * @hide
+     */
+    public @ParseResult int parsePacketPart(KSPacket packet, int partOffset) {
+        mStatusRspPartOffset = partOffset;
+        try {
+            return parsePacket(packet);
+        } finally {
+            mStatusRspPartOffset = -1;
+        }
+    }
+
+    @Override
+    protected void onErrorOccurred(@HomeDevice.Error int errorCode) {
+        mErrorOccurred = true;
+        super.onErrorOccurred(errorCode);
+    }
+
     protected void sendPacket(KSPacket packet) {
         sendPacket(packet, 0);
     }
 
     protected void sendPacket(KSPacket packet, long repeatCount) {
+        if (mMutingStatusRsp) {
+            return; // Already answered by respondFast()
+        }
+
+        if (mCapturingStatusRsp && packet != null) {
+            if (repeatCount == 0 && packet.commandType == CMD_STATUS_RSP) {
+                packet = new KSEncodedPacket(packet);
+                mCapturedStatusRsp = (KSEncodedPacket) packet;
+            }
+            mCapturedStatusRspCount++;
+        }
+
         // Try to schedule packet.
         if (repeatCount > 0) {
             PacketSchedule schedule = new PacketSchedule.Builder(packet)
@@ -420,6 +729,8 @@ public abstract class KSDeviceContextBase extends DeviceContextBase {
     // Override these methods to parse data that comes from each type of packets.
     protected @ParseResult int parseStatusReq(KSPacket packet, PropertyMap outProps) { return PARSE_OK_NONE; }
     protected @ParseResult int parseStatusRsp(KSPacket packet, PropertyMap outProps) { return PARSE_OK_NONE; }
+    protected boolean splitStatusRspParts(KSPacket packet, int[] outOffsets) { return false; }
+    protected @ParseResult int parseStatusRspPart(KSPacket packet, int offset, PropertyMap outProps) { return parseStatusRsp(packet, outProps); }
     protected @ParseResult int parseCharacteristicReq(KSPacket packet, PropertyMap outProps) { return PARSE_OK_NONE; }
     protected @ParseResult int parseCharacteristicRsp(KSPacket packet, PropertyMap outProps) { return PARSE_OK_NONE; }
     protected @ParseResult int parseSingleControlReq(KSPacket packet, PropertyMap outProps) { return PARSE_OK_NONE; }
@@ -38,6 +38,17 @@ public class KSDoorLock extends KSDeviceContextBase {
     private static final String TAG = "KSDoorLock";
     private static final boolean DBG = true;
 
+    // bit0: door opened, bit1: emergency alarmed
+    static final KSPacketLayout STATE_BYTE_LAYOUT = new KSPacketLayout.Builder()
+            .flags(0, DoorLock.PROP_CURRENT_STATES, DoorLock.State.DOOR_OPENED, DoorLock.State.EMERGENCY_ALARMED)
+            .bit(0, 0, HomeDevice.PROP_ONOFF).decodeOnly()
+            .build();
+
+    // data0: error, data1: state byte
+    static final KSPacketLayout STATE_RSP_LAYOUT = new KSPacketLayout.Builder()
+            .include(1, STATE_BYTE_LAYOUT)
+            .build();
+
     private static boolean mForceReleaseSupported = false;
 
     public KSDoorLock(MainContext mainContext, Map defaultProps) {
@@ -67,17 +78,14 @@ public class KSDoorLock extends KSDeviceContextBase {
 
         // Send response packet.
         final PropertyMap props = getReadPropertyMap();
-        final ByteArrayBuffer data = new ByteArrayBuffer();
-        data.append(0); // no error
-        makeDoorLockStateByte(props, data);
-        sendPacket(createPacket(CMD_STATUS_RSP, data.toArray()));
+        sendPacket(createPacket(CMD_STATUS_RSP, makeStateRspData(props)));
 
         return PARSE_OK_STATE_UPDATED;
     }
 
     @Override
     protected @ParseResult int parseStatusRsp(KSPacket packet, PropertyMap outProps) {
-        if (packet.data.length < 2) {
+        if (packet.data.length < STATE_RSP_LAYOUT.getLength()) {
             if (DBG) Log.w(TAG, "parse-status-rsp: wrong size of data " + packet.data.length);
             return PARSE_ERROR_MALFORMED_PACKET;
         }
@@ -89,7 +97,7 @@ public class KSDoorLock extends KSDeviceContextBase {
             return PARSE_OK_ERROR_RECEIVED;
         }
 
-        parseDoorLockStateByte(packet.data[1], outProps);
+        STATE_RSP_LAYOUT.decode(packet.data, 0, outProps);
 
         return PARSE_OK_STATE_UPDATED;
     }
@@ -140,17 +148,14 @@ public class KSDoorLock extends KSDeviceContextBase {
         outProps.put(HomeDevice.PROP_ONOFF, (control == 1));
 
         // Send response packet.
-        final ByteArrayBuffer data = new ByteArrayBuffer();
-        data.append(0); // no error
-        makeDoorLockStateByte(outProps, data);
-        sendPacket(createPacket(CMD_SINGLE_CONTROL_RSP, data.toArray()));
+        sendPacket(createPacket(CMD_SINGLE_CONTROL_RSP, makeStateRspData(outProps)));
 
         return PARSE_OK_STATE_UPDATED;
     }
 
     @Override
     protected @ParseResult int parseSingleControlRsp(KSPacket packet, PropertyMap outProps) {
-        if (packet.data.length < 2) {
+        if (packet.data.length < STATE_RSP_LAYOUT.getLength()) {
             if (DBG) Log.w(TAG, "parse-status-ctrl-rsp: wrong size of data " + packet.data.length);
             return PARSE_ERROR_MALFORMED_PACKET;
         }
@@ -162,7 +167,7 @@ public class KSDoorLock extends KSDeviceContextBase {
             return PARSE_OK_ERROR_RECEIVED;
         }
 
-        parseDoorLockStateByte(packet.data[1], outProps);
+        STATE_RSP_LAYOUT.decode(packet.data, 0, outProps);
 
         return PARSE_OK_ACTION_PERFORMED;
     }
@@ -180,25 +185,11 @@ public class KSDoorLock extends KSDeviceContextBase {
         return PARSE_OK_STATE_UPDATED;
     }
 
-    private void makeDoorLockStateByte(PropertyMap props, ByteArrayBuffer outData) {
-        final long curStates = props.get(DoorLock.PROP_CURRENT_STATES, Long.class);
-
-        int stateData = 0;
-        if ((curStates & DoorLock.State.DOOR_OPENED) != 0) stateData |= (1 << 0);
-        if ((curStates & DoorLock.State.EMERGENCY_ALARMED) != 0) stateData |= (1 << 1);
-
-        outData.append(stateData);
-    }
-
-    private void parseDoorLockStateByte(byte stateByte, PropertyMap outProps) {
-        long curStates = (long) outProps.get(DoorLock.PROP_CURRENT_STATES).getValue();
-        long newStates = 0;
-        if ((stateByte & (1 << 0)) != 0) newStates |= DoorLock.State.DOOR_OPENED;
-        if ((stateByte & (1 << 1)) != 0) newStates |= DoorLock.State.EMERGENCY_ALARMED;
-        outProps.put(DoorLock.PROP_CURRENT_STATES, newStates);
-
-        final boolean isOn = ((newStates & DoorLock.State.DOOR_OPENED) != 0);
-        outProps.put(HomeDevice.PROP_ONOFF, isOn);
+    private byte[] makeStateRspData(PropertyMap props) {
+        final byte[] data = new byte[STATE_RSP_LAYOUT.getLength()];
+        data[0] = 0; // no error
+        STATE_RSP_LAYOUT.encode(props, data, 0);
+        return data;
     }
 
     protected boolean onDoorLockControlTask(PropertyMap reqProps, PropertyMap outProps) {
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.ksx4506;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * [KS X 4506] The packet that keeps its frame encoded once with the checksums,
+ * so that it can be written again and again without encoding.
+ */
+public class KSEncodedPacket extends KSPacket {
+    private final byte[] mFrame;
+
+    public KSEncodedPacket(KSPacket packet) {
+        this.deviceId = packet.deviceId;
+        this.deviceSubId = packet.deviceSubId;
+        this.commandType = packet.commandType;
+        this.data = (packet.data != null) ? packet.data : new byte[0];
+        mFrame = packet.toBytes();
+    }
+
+    /** Returns the encoded frame, that must not be modified. */
+    public byte[] frame() {
+        return mFrame;
+    }
+
+    @Override
+    public boolean parse(ByteBuffer buffer) {
+        return false; // Immutable
+    }
+
+    @Override
+    public void toBuffer(ByteBuffer buffer) throws BufferOverflowException {
+        buffer.put(mFrame);
+    }
+}
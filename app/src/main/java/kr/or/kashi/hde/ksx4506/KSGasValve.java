@@ -40,6 +40,22 @@ public class KSGasValve extends KSDeviceContextBase {
     private static final String TAG = "KSGasValve";
     private static final boolean DBG = true;
 
+    // bit0: opened, bit1: closed, bit2: changing, bit3: buzzer on, bit4: gas leaked
+    // Opened or changing state is treated as opened. The state is only decoded
+    // since closed bit is also set when not opened, see makeGasValveStateByte().
+    static final KSPacketLayout STATE_BYTE_LAYOUT = new KSPacketLayout.Builder()
+            .any(0, (1 << 0) | (1 << 2), HomeDevice.PROP_ONOFF).decodeOnly()
+            .flags(0, GasValve.PROP_CURRENT_STATES, GasValve.State.GAS_VALVE, 0L, GasValve.State.GAS_VALVE).decodeOnly()
+            .flags(0, GasValve.PROP_CURRENT_ALARMS, 0L, 0L, 0L,
+                    GasValve.Alarm.EXTINGUISHER_BUZZING, GasValve.Alarm.GAS_LEAKAGE_DETECTED)
+            .build();
+
+    // bit0: extinguisher buzzer supported, bit1: gas leakage detector supported
+    static final KSPacketLayout CHARAC_BYTE_LAYOUT = new KSPacketLayout.Builder()
+            .flags(0, GasValve.PROP_SUPPORTED_ALARMS,
+                    GasValve.Alarm.EXTINGUISHER_BUZZING, GasValve.Alarm.GAS_LEAKAGE_DETECTED)
+            .build();
+
     public KSGasValve(MainContext mainContext, Map defaultProps) {
         super(mainContext, defaultProps, GasValve.class);
 
@@ -131,17 +147,9 @@ public class KSGasValve extends KSDeviceContextBase {
             return PARSE_OK_ERROR_RECEIVED;
         }
 
-        final int data1 = packet.data[1] & 0xFF;
-
-        long supportedStates = 0L;
-        long supportedAlarms = 0L;
-
-        supportedStates |= GasValve.State.GAS_VALVE; // Gas valve is default as supported in standard specification.
-        if ((data1 & (1L << 0)) != 0L) supportedAlarms |= (GasValve.Alarm.EXTINGUISHER_BUZZING);
-        if ((data1 & (1L << 1)) != 0L) supportedAlarms |= (GasValve.Alarm.GAS_LEAKAGE_DETECTED);
-
-        outProps.put(GasValve.PROP_SUPPORTED_STATES, supportedStates);
-        outProps.put(GasValve.PROP_SUPPORTED_ALARMS, supportedAlarms);
+        // Gas valve is default as supported in standard specification.
+        outProps.put(GasValve.PROP_SUPPORTED_STATES, GasValve.State.GAS_VALVE);
+        CHARAC_BYTE_LAYOUT.decodeByte(packet.data[1], outProps);
 
         return PARSE_OK_PEER_DETECTED;
     }
@@ -217,11 +225,7 @@ public class KSGasValve extends KSDeviceContextBase {
     }
 
     protected int makeCharacRspByte(PropertyMap props) {
-        final long supportedAlarms = props.get(GasValve.PROP_SUPPORTED_ALARMS, Long.class);
-        int data = 0;
-        if ((supportedAlarms & GasValve.Alarm.EXTINGUISHER_BUZZING) != 0) data |= (1L << 0);
-        if ((supportedAlarms & GasValve.Alarm.GAS_LEAKAGE_DETECTED) != 0) data |= (1L << 1);
-        return data;
+        return CHARAC_BYTE_LAYOUT.encodeByte(props);
     }
 
     protected int makeGasValveStateByte(PropertyMap props) {
@@ -240,29 +244,7 @@ public class KSGasValve extends KSDeviceContextBase {
     }
 
     protected void parseGasValveStateByte(byte stateByte, PropertyMap outProps) {
-        long newStates = 0;
-        long newAlarms = 0;
-
-        final boolean gasValveOpened    = ((stateByte & (1L << 0)) != 0L);
-        final boolean gasValveClosing   = ((stateByte & (1L << 1)) != 0L);
-        final boolean gasValveChanging  = ((stateByte & (1L << 2)) != 0L);
-
-        if (gasValveOpened || gasValveChanging) {
-            // Treat opened or changing state as opened.
-            newStates |= GasValve.State.GAS_VALVE;
-        }
-
-        if ((stateByte & (1L << 3)) != 0L) {    // fire-extinguisher buzzer on
-            newAlarms |= GasValve.Alarm.EXTINGUISHER_BUZZING;
-        }
-
-        if ((stateByte & (1L << 4)) != 0L) {    // gas leakage detected
-            newAlarms |= GasValve.Alarm.GAS_LEAKAGE_DETECTED;
-        }
-
-        outProps.put(HomeDevice.PROP_ONOFF, ((newStates & GasValve.State.GAS_VALVE) != 0L));
-        outProps.put(GasValve.PROP_CURRENT_STATES, newStates);
-        outProps.put(GasValve.PROP_CURRENT_ALARMS, newAlarms);
+        STATE_BYTE_LAYOUT.decodeByte(stateByte, outProps);
     }
 
     @Override
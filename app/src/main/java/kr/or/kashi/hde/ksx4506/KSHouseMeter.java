@@ -31,7 +31,6 @@ import kr.or.kashi.hde.device.HouseMeter;
 import kr.or.kashi.hde.ksx4506.KSAddress;
 import kr.or.kashi.hde.ksx4506.KSDeviceContextBase;
 import kr.or.kashi.hde.ksx4506.KSPacket;
-import kr.or.kashi.hde.util.Utils;
 
 import java.util.List;
 import java.util.Map;
@@ -45,6 +44,7 @@ public class KSHouseMeter extends KSDeviceContextBase {
 
     public static final int CURRENT_METER_BYTES = 3; // BCD 6 digits
     public static final int TOTAL_METER_BYTES = 3;   // BCD 6 digits
+    public static final int METER_DIGITS = 6;
     public static final int METER_DATA_BYTES = CURRENT_METER_BYTES + TOTAL_METER_BYTES;
     public static final int TOTAL_METER_COUNT = 5;   // water, gas, electricity, hot_water, heating
 
@@ -171,68 +171,45 @@ public class KSHouseMeter extends KSDeviceContextBase {
         return PARSE_OK_NONE;
     }
 
-    protected void makeMeterDataBytes(PropertyMap props, ByteArrayBuffer outData) {
-        final int type = props.get(HouseMeter.PROP_METER_TYPE, Integer.class);
-        final double currentMeter = props.get(HouseMeter.PROP_CURRENT_METER_VALUE, Double.class);
-        final double totalMeter = props.get(HouseMeter.PROP_TOTAL_METER_VALUE, Double.class);
-
-        int cd1 = 0;
-        int cd2 = 0;
-        int cd3 = 0;
-        int cd4 = 0;
-        int cd5 = 0;
-        int cd6 = 0;
-
-        if (type == HouseMeter.MeterType.ELECTRICITY) {
-            String numStr = Utils.formatString(currentMeter, 6, 0);
-            cd1 = numStr.charAt(0) - '0';
-            cd2 = numStr.charAt(1) - '0';
-            cd3 = numStr.charAt(2) - '0';
-            cd4 = numStr.charAt(3) - '0';
-            cd5 = numStr.charAt(4) - '0';
-            cd6 = numStr.charAt(5) - '0';
-        } else {
-            String numStr = Utils.formatString(currentMeter, 3, 3);
-            cd1 = numStr.charAt(0) - '0';
-            cd2 = numStr.charAt(1) - '0';
-            cd3 = numStr.charAt(2) - '0';
-            cd4 = numStr.charAt(4) - '0';
-            cd5 = numStr.charAt(5) - '0';
-            cd6 = numStr.charAt(6) - '0';
+    @Override
+    protected boolean splitStatusRspParts(KSPacket packet, int[] outOffsets) {
+        // Be careful of missing error byte in the response of group request.
+        if (!KSAddress.toDeviceSubId(packet.deviceSubId).isFull() || packet.data.length < 6) {
+            return false;
         }
 
-        outData.append(((cd1 << 4) & 0xF0) | (cd2 & 0x0F));
-        outData.append(((cd3 << 4) & 0xF0) | (cd4 & 0x0F));
-        outData.append(((cd5 << 4) & 0xF0) | (cd6 & 0x0F));
-
-        int td1 = 0;
-        int td2 = 0;
-        int td3 = 0;
-        int td4 = 0;
-        int td5 = 0;
-        int td6 = 0;
-
-        if (type == HouseMeter.MeterType.HEATING) {
-            String numStr = Utils.formatString(totalMeter, 4, 2);
-            td1 = numStr.charAt(0) - '0';
-            td2 = numStr.charAt(1) - '0';
-            td3 = numStr.charAt(2) - '0';
-            td4 = numStr.charAt(3) - '0';
-            td5 = numStr.charAt(5) - '0';
-            td6 = numStr.charAt(6) - '0';
-        } else{
-            String numStr = Utils.formatString(totalMeter, 5, 1);
-            td1 = numStr.charAt(0) - '0';
-            td2 = numStr.charAt(1) - '0';
-            td3 = numStr.charAt(2) - '0';
-            td4 = numStr.charAt(3) - '0';
-            td5 = numStr.charAt(4) - '0';
-            td6 = numStr.charAt(6) - '0';
+        // Size of meter data depends on characteristic of each single device,
+        // and the data of each one is at the slot of its index in that size.
+        for (KSHouseMeter child : getChildren(KSHouseMeter.class)) {
+            final int singleId = child.getDeviceSubId().value() & 0x0F;
+            final int meterIndex = singleId - 1;
+            if (meterIndex < 0 || meterIndex >= TOTAL_METER_COUNT) continue;
+
+            final int dataBytes = child.getMeterDataBytes();
+            final int dataOffset = meterIndex * dataBytes;
+            if (dataOffset + dataBytes > packet.data.length) continue; // Parses whole data to report
+            outOffsets[singleId] = dataOffset;
         }
+        return true;
+    }
+
+    @Override
+    protected @ParseResult int parseStatusRspPart(KSPacket packet, int offset, PropertyMap outProps) {
+        return parseMeterDataBytes(packet.data, offset, 0, outProps);
+    }
+
+    /** The size of meter data of this single device in status response */
+    protected int getMeterDataBytes() {
+        return METER_DATA_BYTES;
+    }
 
-        outData.append(((td1 << 4) & 0xF0) | (td2 & 0x0F));
-        outData.append(((td3 << 4) & 0xF0) | (td4 & 0x0F));
-        outData.append(((td5 << 4) & 0xF0) | (td6 & 0x0F));
+    protected void makeMeterDataBytes(PropertyMap props, ByteArrayBuffer outData) {
+        final int type = props.getInt(HouseMeter.KEY_METER_TYPE);
+        final double currentMeter = props.getDouble(HouseMeter.KEY_CURRENT_METER_VALUE);
+        final double totalMeter = props.getDouble(HouseMeter.KEY_TOTAL_METER_VALUE);
+
+        KSBcd.appendFixed(outData, currentMeter, METER_DIGITS, getCurrentMeterFractionDigits(type));
+        KSBcd.appendFixed(outData, totalMeter, METER_DIGITS, getTotalMeterFractionDigits(type));
     }
 
     protected @ParseResult int parseMeterDataBytes(byte[] data, int dataOffset, int meterIndex, PropertyMap outProps) {
@@ -244,65 +221,29 @@ public class KSHouseMeter extends KSDeviceContextBase {
             return PARSE_ERROR_MALFORMED_PACKET;
         }
 
-        final int type = (Integer) getProperty(HouseMeter.PROP_METER_TYPE).getValue();
-
-        final int cd1 = ((data[meterOffset + 0] & 0xF0) >> 4);
-        final int cd2 = ((data[meterOffset + 0] & 0x0F));
-        final int cd3 = ((data[meterOffset + 1] & 0xF0) >> 4);
-        final int cd4 = ((data[meterOffset + 1] & 0x0F));
-        final int cd5 = ((data[meterOffset + 2] & 0xF0) >> 4);
-        final int cd6 = ((data[meterOffset + 2] & 0x0F));
-
-        final int td1 = ((data[meterOffset + 3] & 0xF0) >> 4);
-        final int td2 = ((data[meterOffset + 3] & 0x0F));
-        final int td3 = ((data[meterOffset + 4] & 0xF0) >> 4);
-        final int td4 = ((data[meterOffset + 4] & 0x0F));
-        final int td5 = ((data[meterOffset + 5] & 0xF0) >> 4);
-        final int td6 = ((data[meterOffset + 5] & 0x0F));
-
-        double currentMeter = 0.0;
-        if (type == HouseMeter.MeterType.ELECTRICITY) {
-            currentMeter += ((double)cd1 * 100000.0);
-            currentMeter += ((double)cd2 * 10000.0);
-            currentMeter += ((double)cd3 * 1000.0);
-            currentMeter += ((double)cd4 * 100.0);
-            currentMeter += ((double)cd5 * 10.0);
-            currentMeter += ((double)cd6 * 1.0);
-            currentMeter = Math.round(currentMeter * 1.0) / 1.0;
-        } else {
-            currentMeter += ((double)cd1 * 100.0);
-            currentMeter += ((double)cd2 * 10.0);
-            currentMeter += ((double)cd3 * 1.0);
-            currentMeter += ((double)cd4 * 0.1);
-            currentMeter += ((double)cd5 * 0.01);
-            currentMeter += ((double)cd6 * 0.001);
-            currentMeter = Math.round(currentMeter * 1000.0) / 1000.0;
-        }
+        final int type = mBasePropertyMap.getInt(HouseMeter.KEY_METER_TYPE);
+
+        final double currentMeter = KSBcd.readFixed(data, meterOffset * 2,
+                METER_DIGITS, getCurrentMeterFractionDigits(type));
         outProps.put(HouseMeter.PROP_CURRENT_METER_VALUE, currentMeter);
 
-        double totalMeter = 0.0;
-        if (type == HouseMeter.MeterType.HEATING) {
-            totalMeter += ((double)td1 * 1000.0);
-            totalMeter += ((double)td2 * 100.0);
-            totalMeter += ((double)td3 * 10.0);
-            totalMeter += ((double)td4 * 1.0);
-            totalMeter += ((double)td5 * 0.1);
-            totalMeter += ((double)td6 * 0.01);
-            totalMeter = Math.round(totalMeter * 100.0) / 100.0;
-        } else{
-            totalMeter += ((double)td1 * 10000.0);
-            totalMeter += ((double)td2 * 1000.0);
-            totalMeter += ((double)td3 * 100.0);
-            totalMeter += ((double)td4 * 10.0);
-            totalMeter += ((double)td5 * 1.0);
-            totalMeter += ((double)td6 * 0.1);
-            totalMeter = Math.round(totalMeter * 10.0) / 10.0;
-        }
+        final double totalMeter = KSBcd.readFixed(data, (meterOffset + CURRENT_METER_BYTES) * 2,
+                METER_DIGITS, getTotalMeterFractionDigits(type));
         outProps.put(HouseMeter.PROP_TOTAL_METER_VALUE, totalMeter);
 
         return PARSE_OK_STATE_UPDATED;
     }
 
+    // Current meter is in 000000 (electricity) or 000.000, total meter is in
+    // 0000.00 (heating) or 00000.0 (see. spec.)
+    protected static int getCurrentMeterFractionDigits(int type) {
+        return (type == HouseMeter.MeterType.ELECTRICITY) ? 0 : 3;
+    }
+
+    protected static int getTotalMeterFractionDigits(int type) {
+        return (type == HouseMeter.MeterType.HEATING) ? 2 : 1;
+    }
+
     @Override
     protected @ParseResult int parseCharacteristicReq(KSPacket packet, PropertyMap outProps) {
         // No data to parse from request packet.
@@ -49,6 +49,13 @@ public class KSLight extends KSDeviceContextBase {
 
     public static final int CMD_BATCH_LIGHT_OFF_REQ = 0x43;
 
+    // bit0: on/off, bit1: dimmable, bit4~7: dimming level
+    static final KSPacketLayout STATE_BYTE_LAYOUT = new KSPacketLayout.Builder()
+            .bit(0, 0, HomeDevice.PROP_ONOFF)
+            .bit(0, 1, Light.PROP_DIM_SUPPORTED)
+            .uint(0, 0xF0, Light.PROP_CUR_DIM_LEVEL)
+            .build();
+
     protected int mTotalCountInGroup = 0;
     protected boolean mBatchLighOffSaved = false;
 
@@ -140,6 +147,27 @@ public class KSLight extends KSDeviceContextBase {
         return PARSE_OK_STATE_UPDATED;
     }
 
+    @Override
+    protected boolean splitStatusRspParts(KSPacket packet, int[] outOffsets) {
+        // Each single device parses whole data by itself to report the error.
+        if (packet.data.length < 2 || packet.data[0] != 0) {
+            return false;
+        }
+
+        // data1~: state byte of each single light in order of index
+        final int count = Math.min(packet.data.length - 1, 0x0E);
+        for (int i = 1; i <= count; i++) {
+            outOffsets[i] = i;
+        }
+        return true;
+    }
+
+    @Override
+    protected @ParseResult int parseStatusRspPart(KSPacket packet, int offset, PropertyMap outProps) {
+        parseSingleLightStateByte(packet.data[offset] & 0xFF, outProps);
+        return PARSE_OK_STATE_UPDATED;
+    }
+
     @Override
     protected @ParseResult int parseCharacteristicReq(KSPacket packet, PropertyMap outProps) {
         final ByteArrayBuffer data = new ByteArrayBuffer();
@@ -162,13 +190,13 @@ public class KSLight extends KSDeviceContextBase {
 
         final KSAddress.DeviceSubId thisSubId = ((KSAddress)getAddress()).getDeviceSubId();
         if (thisSubId.isSingle() || thisSubId.isSingleOfGroup()) {
-            boolean dimSupported = props.get(Light.PROP_DIM_SUPPORTED, Boolean.class);
+            boolean dimSupported = props.getBoolean(Light.KEY_DIM_SUPPORTED);
             normalCount = dimSupported ? 0 : 1;
             dimmableCount = dimSupported ? 1 : 0;
         } else if (thisSubId.isFull() || thisSubId.isFullOfGroup()) {
             for (KSLight child: getChildren(KSLight.class)) {
                 int index = normalCount + dimmableCount;
-                if (child.getReadPropertyMap().get(Light.PROP_DIM_SUPPORTED, Boolean.class)) {
+                if (child.getReadPropertyMap().getBoolean(Light.KEY_DIM_SUPPORTED)) {
                     dimmableFlags |= (1 << index);
                     dimmableCount++;
                 } else {
@@ -302,7 +330,7 @@ public class KSLight extends KSDeviceContextBase {
     }
 
     protected void setBatchLightStateRecursively(boolean isBatchOff, PropertyMap curProps, PropertyMap outProps) {
-        final boolean isOn = curProps.get(HomeDevice.PROP_ONOFF, Boolean.class);
+        final boolean isOn = curProps.getBoolean(HomeDevice.KEY_ONOFF);
         if (isBatchOff) {
             if (isOn) {
                 outProps.put(Light.PROP_ONOFF, false);
@@ -337,26 +365,11 @@ public class KSLight extends KSDeviceContextBase {
     }
 
     private int makeSingleLightStateByte(PropertyMap props) {
-        final boolean isOn = props.get(HomeDevice.PROP_ONOFF, Boolean.class);
-        final boolean dimSupported = props.get(Light.PROP_DIM_SUPPORTED, Boolean.class);
-        final int dimLevel = props.get(Light.PROP_CUR_DIM_LEVEL, Integer.class);
-
-        int state = 0;
-        if (isOn) state |= (1 << 0);
-        if (dimSupported) state |= (1 << 1);
-        state |= (dimLevel & 0x0F) << 4;
-
-        return state;
+        return STATE_BYTE_LAYOUT.encodeByte(props);
     }
 
     private void parseSingleLightStateByte(int state, PropertyMap outProps) {
-        final boolean isOn = (state & 0x01) != 0;
-        final boolean dimSupported = (state & 0x02) != 0;
-        final int dimLevel = (state >> 4) & 0x0F;
-
-        outProps.put(HomeDevice.PROP_ONOFF, isOn);
-        outProps.put(Light.PROP_DIM_SUPPORTED, dimSupported);
-        outProps.put(Light.PROP_CUR_DIM_LEVEL, dimLevel);
+        STATE_BYTE_LAYOUT.decodeByte((byte) state, outProps);
     }
 
     private boolean onLightControlTask(PropertyMap reqProps, PropertyMap outProps) {
@@ -389,7 +402,7 @@ public class KSLight extends KSDeviceContextBase {
     }
 
     private boolean onBatchLightOffTask(PropertyMap reqProps, PropertyMap outProps) {
-        final boolean batchOff = reqProps.get(Light.PROP_BATCH_LIGHT_OFF, Boolean.class);
+        final boolean batchOff = reqProps.getBoolean(Light.KEY_BATCH_LIGHT_OFF);
         KSPacket packet = createPacket(CMD_BATCH_LIGHT_OFF_REQ, (byte)(batchOff ? 0x00 : 0x01));
         sendPacket(packet, 3);
         return true;
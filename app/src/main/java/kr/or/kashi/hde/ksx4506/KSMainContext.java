@@ -27,18 +27,24 @@ import kr.or.kashi.hde.base.PropertyValue;
 import kr.or.kashi.hde.DeviceContextBase;
 import kr.or.kashi.hde.DeviceContextBase.ParseResult;
 import kr.or.kashi.hde.DeviceDiscovery;
+import kr.or.kashi.hde.DeviceFactory;
 import kr.or.kashi.hde.HomePacket;
 import kr.or.kashi.hde.MainContext;
 import kr.or.kashi.hde.HomeDevice;
 import kr.or.kashi.hde.device.*;
+import kr.or.kashi.hde.session.SlaveResponder;
 import kr.or.kashi.hde.util.DebugLog;
 import kr.or.kashi.hde.util.Utils;
 
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * [KS X 4506] The implementation of main context
@@ -47,9 +53,19 @@ public class KSMainContext extends MainContext {
     private static final String TAG = "KSMainContext";
     private static final boolean DBG = true;
 
-    protected final Map<Integer, Class<?>> mAddressToClassMap = new HashMap<>();
+    // Prebuilt once and shared by all the instances of this protocol.
+    private static final Map<Integer, DeviceFactory.ContextBuilder> sContextBuilderMap =
+            Collections.unmodifiableMap(createContextBuilderMap());
+
+    protected final Map<Integer, DeviceFactory.ContextBuilder> mContextBuilderMap;
     private DeviceDiscovery mDiscovery = null;
     private final Map<String, HomeDevice> mVirtualDeviceMap = new ConcurrentHashMap<>();
+    // Real devices indexed by device id and sub id, to find children without making addresses.
+    private final HomeDevice[][] mDeviceTable = new HomeDevice[0x100][];
+    // Contexts to parse the packet of each device id and sub id, including virtual
+    // devices and children. Rows are compiled again whenever a device is added or
+    // removed, so a packet can be dispatched without making any address.
+    private final AtomicReferenceArray<DeviceContextBase[][]> mResponderTable = new AtomicReferenceArray<>(0x100);
 
     public static int getDeviceIdFromProps(Map props) {
         PropertyValue propAddr = (PropertyValue) props.get(HomeDevice.PROP_ADDR);
@@ -58,20 +74,30 @@ public class KSMainContext extends MainContext {
         return ksAddr.getDeviceId();
     }
 
+    protected static Map<Integer, DeviceFactory.ContextBuilder> createContextBuilderMap() {
+        final Map<Integer, DeviceFactory.ContextBuilder> map = new HashMap<>();
+        map.put(0x02, KSAirConditioner::new);
+        map.put(0x33, KSBatchSwitch::new);
+        map.put(0x35, KSBoiler::new);
+        map.put(0x13, KSCurtain::new);
+        map.put(0x31, KSDoorLock::new);
+        map.put(0x12, KSGasValve::new);
+        map.put(0x30, KSHouseMeter::new);
+        map.put(0x0E, KSLight::new);
+        map.put(0x39, KSPowerSaver::new);
+        map.put(0x34, KSSecurityExpansion::new);
+        map.put(0x36, KSThermostat::new);
+        map.put(0x32, KSVentilation::new);
+        return map;
+    }
+
     public KSMainContext(Context context, boolean isSlaveMode) {
+        this(context, isSlaveMode, sContextBuilderMap);
+    }
+
+    protected KSMainContext(Context context, boolean isSlaveMode, Map<Integer, DeviceFactory.ContextBuilder> contextBuilderMap) {
         super(context, isSlaveMode);
-        mAddressToClassMap.put(0x02, KSAirConditioner.class);
-        mAddressToClassMap.put(0x33, KSBatchSwitch.class);
-        mAddressToClassMap.put(0x35, KSBoiler.class);
-        mAddressToClassMap.put(0x13, KSCurtain.class);
-        mAddressToClassMap.put(0x31, KSDoorLock.class);
-        mAddressToClassMap.put(0x12, KSGasValve.class);
-        mAddressToClassMap.put(0x30, KSHouseMeter.class);
-        mAddressToClassMap.put(0x0E, KSLight.class);
-        mAddressToClassMap.put(0x39, KSPowerSaver.class);
-        mAddressToClassMap.put(0x34, KSSecurityExpansion.class);
-        mAddressToClassMap.put(0x36, KSThermostat.class);
-        mAddressToClassMap.put(0x32, KSVentilation.class);
+        mContextBuilderMap = contextBuilderMap;
     }
 
     @Override
@@ -89,16 +115,16 @@ public class KSMainContext extends MainContext {
         final int subIdUpper = (subId & 0xF0);
         final int subIdLower = (subId & 0x0F);
 
+        final HomeDevice[] subIdTable = putDeviceToTable(devId, subId, device);
+
         if (subId == 0xFF) {
             for (int i = 1; i <= 0xE; i++) {
-                String childAddr = new KSAddress(devId, (i << 4) | 0x0F).toAddressString();
-                HomeDevice child = getDevice(childAddr);
+                HomeDevice child = subIdTable[(i << 4) | 0x0F];
                 if (child != null) device.dc().addChild(child.dc());
             }
         } else if (subIdLower == 0x0F) {
             for (int i = 1; i <= 0xE; i++) {
-                String childAddr = new KSAddress(devId, (subIdUpper | i)).toAddressString();
-                HomeDevice child = getDevice(childAddr);
+                HomeDevice child = subIdTable[subIdUpper | i];
                 if (child != null) device.dc().addChild(child.dc());
             }
 
@@ -119,9 +145,71 @@ public class KSMainContext extends MainContext {
             parent.dc().addChild(device.dc());
         }
 
+        compileResponders(devId);
+
         return added;
     }
 
+    private HomeDevice[] putDeviceToTable(int devId, int subId, HomeDevice device) {
+        synchronized (mDeviceTable) {
+            HomeDevice[] subIdTable = mDeviceTable[devId & 0xFF];
+            if (subIdTable == null) {
+                subIdTable = new HomeDevice[0x100];
+                mDeviceTable[devId & 0xFF] = subIdTable;
+            }
+            subIdTable[subId & 0xFF] = device;
+            return subIdTable;
+        }
+    }
+
+    private void removeDeviceFromTable(int devId, int subId, HomeDevice device) {
+        synchronized (mDeviceTable) {
+            final HomeDevice[] subIdTable = mDeviceTable[devId & 0xFF];
+            if (subIdTable != null && subIdTable[subId & 0xFF] == device) {
+                subIdTable[subId & 0xFF] = null;
+            }
+        }
+    }
+
+    private void compileResponders(int devId) {
+        final HomeDevice[] subIdTable;
+        synchronized (mDeviceTable) {
+            subIdTable = (mDeviceTable[devId & 0xFF] != null) ? mDeviceTable[devId & 0xFF].clone() : null;
+        }
+
+        final HomeDevice[] devices = new HomeDevice[0x100];
+        if (subIdTable != null) {
+            System.arraycopy(subIdTable, 0, devices, 0, devices.length);
+        }
+        for (HomeDevice device : mVirtualDeviceMap.values()) {
+            final KSDeviceContextBase dc = (KSDeviceContextBase) device.dc();
+            if (dc.getDeviceId() == devId) devices[dc.getDeviceSubId().value() & 0xFF] = device;
+        }
+
+        DeviceContextBase[][] row = null;
+        for (int subId = 0; subId < devices.length; subId++) {
+            final HomeDevice device = devices[subId];
+            if (device == null) continue;
+            if (row == null) row = new DeviceContextBase[0x100][];
+
+            final DeviceContextBase dc = device.dc();
+            final List<DeviceContextBase> responders = new ArrayList<>();
+            responders.add(dc);
+            if (dc.isMaster()) {
+                // TODO: Consider if doing by parent is more efficient.
+                responders.addAll(dc.getChildren());
+            }
+            row[subId] = responders.toArray(new DeviceContextBase[0]);
+        }
+
+        mResponderTable.set(devId & 0xFF, row);
+    }
+
+    private DeviceContextBase[] getResponders(int devId, int subId) {
+        final DeviceContextBase[][] row = mResponderTable.get(devId & 0xFF);
+        return (row != null) ? row[subId & 0xFF] : null;
+    }
+
     private HomeDevice getDeviceOrVirtualDevice(String address) {
         HomeDevice device = getDevice(address);
         if (device == null) {
@@ -157,6 +245,8 @@ public class KSMainContext extends MainContext {
         removeVirtualDeviceIf(device);
 
         final KSDeviceContextBase dc = ((KSDeviceContextBase)device.dc());
+        removeDeviceFromTable(dc.getDeviceId(), dc.getDeviceSubId().value(), device);
+
         if (dc.getDeviceSubId().hasFull()) { // all devices in group(?F) or all device (FF)
             dc.removeAllChildren();
         } else {
@@ -172,6 +262,8 @@ public class KSMainContext extends MainContext {
         }
 
         super.removeDevice(device); // Call super
+
+        compileResponders(dc.getDeviceId());
     }
 
     @Override
@@ -182,9 +274,9 @@ public class KSMainContext extends MainContext {
     }
 
     @Override
-    public Class<?> getContextClass(Map defaultProps) {
-        Class<?> contextClass = mAddressToClassMap.get(getDeviceIdFromProps(defaultProps));
-        return (contextClass != null) ? contextClass : KSUnknown.class;
+    public DeviceFactory.ContextBuilder getContextBuilder(Map defaultProps) {
+        DeviceFactory.ContextBuilder builder = mContextBuilderMap.get(getDeviceIdFromProps(defaultProps));
+        return (builder != null) ? builder : KSUnknown::new;
     }
 
     @Override
@@ -227,6 +319,58 @@ public class KSMainContext extends MainContext {
         return mDiscovery;
     }
 
+    @Override
+    protected SlaveResponder getSlaveResponder() {
+        return this::respondFast;
+    }
+
+    private byte[] respondFast(byte[] data, int offset, int length) {
+        // Only the bytes of exactly one complete frame can be answered here,
+        // otherwise leave it to be parsed from the stream.
+        if (length < 7 || (data[offset] & 0xFF) != KSPacket.STX) return null;
+        if (length != 7 + (data[offset + 4] & 0xFF)) return null;
+        if (!KSPacket.check(ByteBuffer.wrap(data, offset, length))) return null;
+
+        final DeviceContextBase[] responders = getResponders(data[offset + 1], data[offset + 2]);
+        if (responders == null) return null;
+
+        return ((KSDeviceContextBase) responders[0]).respondFast(data, offset);
+    }
+
+    @Override
+    protected void onRxBufferCleared(byte[] data, int offset, int length) {
+        // Forget the requests answered fast only if their frames are thrown away.
+        final int end = offset + length;
+        int i = offset;
+        while (i + 7 <= end) {
+            final int frameLength = 7 + (data[i + 4] & 0xFF);
+            if ((data[i] & 0xFF) != KSPacket.STX || i + frameLength > end
+                    || !KSPacket.check(ByteBuffer.wrap(data, i, frameLength))) {
+                i++;
+                continue;
+            }
+
+            final DeviceContextBase[] responders = getResponders(data[i + 1], data[i + 2]);
+            if (responders != null) {
+                ((KSDeviceContextBase) responders[0]).forgetFastStatusRsp(data, i);
+            }
+            i += frameLength;
+        }
+    }
+
+    @Override
+    protected String getResponseDeviceType(byte[] response) {
+        if (response.length < 5) return "unknown";
+        final DeviceContextBase[] responders = getResponders(response[1], response[2]);
+        if (responders != null) return responders[0].getDeviceClass().getSimpleName();
+        return "0x" + Integer.toHexString(response[1] & 0xFF);
+    }
+
+    @Override
+    protected int getResponseCommand(byte[] response) {
+        return (response.length < 5) ? 0 : (response[3] & 0xFF);
+    }
+
     @Override
     public HomePacket createPacket() {
         return new KSPacket(); // TODO: reuse it as static or from pool
@@ -297,28 +441,32 @@ public class KSMainContext extends MainContext {
     }
 
     private void parsePacketInDeviceContexts(KSPacket packet) {
-        final KSAddress address = new KSAddress(packet.deviceId, packet.deviceSubId);
-        final String devAddr = address.getDeviceAddress();
-
         @DeviceContextBase.ParseResult int res = DeviceContextBase.PARSE_OK_NONE;
 
-        final HomeDevice device = getDeviceOrVirtualDevice(devAddr);
-        if (device != null) {
-            res = device.dc().parsePacket(packet);
-
-            if (device.dc().isMaster()) {
-                // TODO: Consider if doing by parent is more efficient.
-                for (DeviceContextBase child: device.dc().getChildren()) {
+        final DeviceContextBase[] responders = getResponders(packet.deviceId, packet.deviceSubId);
+        if (responders != null) {
+            res = responders[0].parsePacket(packet);
+
+            // Let the children parse only each part of response split by the group.
+            final int[] partOffsets = (responders.length > 1)
+                    ? ((KSDeviceContextBase) responders[0]).splitStatusRsp(packet) : null;
+
+            for (int i = 1; i < responders.length; i++) {
+                final KSDeviceContextBase child = (KSDeviceContextBase) responders[i];
+                final int partOffset = (partOffsets != null)
+                        ? partOffsets[child.getDeviceSubId().value() & 0x0F] : -1;
+                if (partOffset >= 0) {
+                    child.parsePacketPart(packet, partOffset);
+                } else {
                     child.parsePacket(packet);
                 }
             }
         }
 
-        // HACK: In slave mode, if any response packet was sent, let's send
-        // null packet to avoid timeout and make the port be ready in receive
-        // mode as soon as possible.
+        // In slave mode, if no response is needed, let the port be ready in
+        // receive mode as soon as possible instead of waiting for timeout.
         if (mIsSlaveMode && res == DeviceContextBase.PARSE_OK_NONE) {
-            sendPacket(null, new HomePacket.Null());
+            requestReleaseLine();
         }
     }
 }
@@ -151,6 +151,14 @@ public class KSPacket implements HomePacket {
         return true;
     }
 
+    /** Returns the whole frame encoded with the header and checksums. */
+    public byte[] toBytes() {
+        final int length = (this.data != null) ? this.data.length : 0;
+        final byte[] frame = new byte[5 + length + 2];
+        toBuffer(ByteBuffer.wrap(frame));
+        return frame;
+    }
+
     @Override
     public void toBuffer(ByteBuffer buffer) throws BufferOverflowException {
         final int pos = buffer.position();
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.ksx4506;
+
+import kr.or.kashi.hde.base.PropertyMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * [KS X 4506] Declarative layout of the fields in data of packet. Each field is
+ * described once per device class by its offset, bits, codec and property, and
+ * the layout is compiled into flat arrays, so that decoding data is just a loop
+ * that puts primitive values into the property map. The layout itself doesn't
+ * allocate, and {@link kr.or.kashi.hde.base.SlotPropertyMap} stores the values in
+ * place, but a staging map still wraps each value into a property value.
+ *
+ * Layout of a single state byte can be included into layouts of the commands
+ * that carry the byte at different offsets.
+ *
+ * @hide
+ */
+public final class KSPacketLayout {
+    private static final int CODEC_MATCH    = 0; // boolean, bits are same as value
+    private static final int CODEC_ANY      = 1; // boolean, any of bits is set
+    private static final int CODEC_UINT     = 2; // int, unsigned value of bits
+    private static final int CODEC_FLAGS    = 3; // long, flags mapped from each bit
+
+    private final int mLength;
+    private final int[] mOffsets;
+    private final int[] mCodecs;
+    private final int[] mMasks;
+    private final int[] mArgs;          // value of MATCH, shift of UINT
+    private final String[] mProps;
+    private final long[][] mBitFlags;   // flag of each bit for FLAGS
+    private final boolean[] mEncodes;
+
+    private KSPacketLayout(int length, List<Field> fields) {
+        final int size = fields.size();
+        mLength = length;
+        mOffsets = new int[size];
+        mCodecs = new int[size];
+        mMasks = new int[size];
+        mArgs = new int[size];
+        mProps = new String[size];
+        mBitFlags = new long[size][];
+        mEncodes = new boolean[size];
+
+        for (int i = 0; i < size; i++) {
+            final Field f = fields.get(i);
+            mOffsets[i] = f.offset;
+            mCodecs[i] = f.codec;
+            mMasks[i] = f.mask;
+            mArgs[i] = f.arg;
+            mProps[i] = f.prop;
+            mBitFlags[i] = f.bitFlags;
+            mEncodes[i] = f.encode;
+        }
+    }
+
+    /** The minimum length of data that has all the fields */
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Decodes all the fields from the data starting at the base offset.
+     * @return {@code false} if the data is too short to have all the fields.
+     */
+    public boolean decode(byte[] data, int base, PropertyMap outProps) {
+        if (data.length - base < mLength) return false;
+        for (int i = 0; i < mCodecs.length; i++) {
+            decodeField(i, data[base + mOffsets[i]] & 0xFF, outProps);
+        }
+        return true;
+    }
+
+    /** Decodes the fields at offset 0 from a single byte. */
+    public void decodeByte(byte data, PropertyMap outProps) {
+        for (int i = 0; i < mCodecs.length && mOffsets[i] == 0; i++) {
+            decodeField(i, data & 0xFF, outProps);
+        }
+    }
+
+    /** Encodes all the fields into the data starting at the base offset. */
+    public void encode(PropertyMap props, byte[] outData, int base) {
+        for (int i = 0; i < mCodecs.length; i++) {
+            if (mEncodes[i]) outData[base + mOffsets[i]] |= (byte) encodeField(i, props);
+        }
+    }
+
+    /** Encodes the fields at offset 0 into a single byte. */
+    public int encodeByte(PropertyMap props) {
+        int data = 0;
+        for (int i = 0; i < mCodecs.length && mOffsets[i] == 0; i++) {
+            if (mEncodes[i]) data |= encodeField(i, props);
+        }
+        return data;
+    }
+
+    private void decodeField(int i, int value, PropertyMap outProps) {
+        final int bits = value & mMasks[i];
+        switch (mCodecs[i]) {
+            case CODEC_MATCH:
+                outProps.put(mProps[i], (bits == mArgs[i]));
+                break;
+            case CODEC_ANY:
+                outProps.put(mProps[i], (bits != 0));
+                break;
+            case CODEC_UINT:
+                outProps.put(mProps[i], (bits >>> mArgs[i]));
+                break;
+            case CODEC_FLAGS:
+                final long[] bitFlags = mBitFlags[i];
+                long flags = 0L;
+                for (int b = 0, rest = bits; rest != 0; b++, rest >>>= 1) {
+                    if ((rest & 1) != 0) flags |= bitFlags[b];
+                }
+                outProps.put(mProps[i], flags);
+                break;
+        }
+    }
+
+    private int encodeField(int i, PropertyMap props) {
+        switch (mCodecs[i]) {
+            case CODEC_MATCH:
+                return props.get(mProps[i], Boolean.class) ? mArgs[i] : 0;
+            case CODEC_ANY:
+                return props.get(mProps[i], Boolean.class) ? mMasks[i] : 0;
+            case CODEC_UINT:
+                return (props.get(mProps[i], Integer.class) << mArgs[i]) & mMasks[i];
+            case CODEC_FLAGS:
+                final long[] bitFlags = mBitFlags[i];
+                final long flags = props.get(mProps[i], Long.class);
+                long written = 0L;
+                int bits = 0;
+                for (int b = 0; b < bitFlags.length; b++) {
+                    final long flag = bitFlags[b];
+                    // Only the first bit is written if a flag is mapped from several bits.
+                    if ((flags & flag) != 0L && (written & flag) == 0L) {
+                        bits |= (1 << b);
+                        written |= flag;
+                    }
+                }
+                return bits;
+        }
+        return 0;
+    }
+
+    private static final class Field {
+        final int offset;
+        final int codec;
+        final int mask;
+        final int arg;
+        final String prop;
+        final long[] bitFlags;
+        boolean encode = true;
+
+        Field(int offset, int codec, int mask, int arg, String prop, long[] bitFlags) {
+            this.offset = offset;
+            this.codec = codec;
+            this.mask = mask;
+            this.arg = arg;
+            this.prop = prop;
+            this.bitFlags = bitFlags;
+        }
+    }
+
+    public static final class Builder {
+        private final List<Field> mFields = new ArrayList<>();
+        private int mLength = 0;
+
+        /** Sets the minimum length of data, if longer than the last field. */
+        public Builder length(int length) {
+            mLength = Math.max(mLength, length);
+            return this;
+        }
+
+        /** Boolean property that is true if the bit is set. */
+        public Builder bit(int offset, int bit, String prop) {
+            return match(offset, (1 << bit), (1 << bit), prop);
+        }
+
+        /** Boolean property that is true if the masked bits are same as the value. */
+        public Builder match(int offset, int mask, int value, String prop) {
+            return add(new Field(offset, CODEC_MATCH, mask, value, prop, null));
+        }
+
+        /** Boolean property that is true if any of the masked bits is set. */
+        public Builder any(int offset, int mask, String prop) {
+            return add(new Field(offset, CODEC_ANY, mask, 0, prop, null));
+        }
+
+        /** Integer property of unsigned value of the masked bits. */
+        public Builder uint(int offset, int mask, String prop) {
+            return add(new Field(offset, CODEC_UINT, mask, Integer.numberOfTrailingZeros(mask), prop, null));
+        }
+
+        /**
+         * Long property of flags that are mapped from each bit.
+         * @param bitFlags The flag of each bit from bit 0, or 0 if the bit isn't used.
+         */
+        public Builder flags(int offset, String prop, long... bitFlags) {
+            int mask = 0;
+            for (int b = 0; b < bitFlags.length; b++) {
+                if (bitFlags[b] != 0L) mask |= (1 << b);
+            }
+            return add(new Field(offset, CODEC_FLAGS, mask, 0, prop, bitFlags.clone()));
+        }
+
+        /** Includes all the fields of other layout at the offset. */
+        public Builder include(int offset, KSPacketLayout layout) {
+            for (int i = 0; i < layout.mCodecs.length; i++) {
+                final Field f = new Field(offset + layout.mOffsets[i], layout.mCodecs[i], layout.mMasks[i],
+                        layout.mArgs[i], layout.mProps[i], layout.mBitFlags[i]);
+                f.encode = layout.mEncodes[i];
+                add(f);
+            }
+            return length(offset + layout.mLength);
+        }
+
+        /** Makes the last field only decoded, e.g. a property derived from other field. */
+        public Builder decodeOnly() {
+            mFields.get(mFields.size() - 1).encode = false;
+            return this;
+        }
+
+        public KSPacketLayout build() {
+            // Keep fields sorted by offset, but in order of declaration in same offset.
+            final List<Field> fields = new ArrayList<>(mFields);
+            Collections.sort(fields, (a, b) -> Integer.compare(a.offset, b.offset));
+            return new KSPacketLayout(mLength, fields);
+        }
+
+        private Builder add(Field field) {
+            mFields.add(field);
+            mLength = Math.max(mLength, field.offset + 1);
+            return this;
+        }
+    }
+}
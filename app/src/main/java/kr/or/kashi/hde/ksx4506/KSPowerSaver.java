@@ -26,7 +26,6 @@ import kr.or.kashi.hde.PacketSchedule;
 import kr.or.kashi.hde.HomeDevice;
 import kr.or.kashi.hde.base.PropertyTask;
 import kr.or.kashi.hde.device.PowerSaver;
-import kr.or.kashi.hde.util.Utils;
 
 import java.util.Map;
 
@@ -43,6 +42,8 @@ public class KSPowerSaver extends KSDeviceContextBase {
     public static final int CMD_STANDBY_POWER_SETTING_RSP = 0xC3;
 
     public static final int CHANNEL_STATE_BYTES = 3;
+    public static final int CONSUMPTION_DIGITS = 5;           // BCD 0000.0 W
+    public static final int STANDBY_CONSUMPTION_DIGITS = 4;   // BCD 000.0 W
     public static final int CHANNEL_CHARC_BYTES = 1;
 
     private int mChannelCountInGroup = 0;
@@ -191,17 +192,13 @@ public class KSPowerSaver extends KSDeviceContextBase {
     }
 
     protected void makeChannelStateBytes(PropertyMap props, ByteArrayBuffer outData) {
-        final boolean isOn = props.get(HomeDevice.PROP_ONOFF, Boolean.class);
-        final long curStates = props.get(PowerSaver.PROP_CURRENT_STATES, Long.class);
-        final long curSettings = props.get(PowerSaver.PROP_CURRENT_SETTINGS, Long.class);
-        final float curWatt = props.get(PowerSaver.PROP_CURRENT_CONSUMPTION, Float.class);
-
-        String numStr = Utils.formatString(curWatt, 4, 1);
-        final int bcd1kw = numStr.charAt(0) - '0';
-        final int bcd100w  = numStr.charAt(1) - '0';
-        final int bcd10w = numStr.charAt(2) - '0';
-        final int bcd1w  = numStr.charAt(3) - '0';
-        final int bcd0d1w = numStr.charAt(5) - '0';
+        final boolean isOn = props.getBoolean(HomeDevice.KEY_ONOFF);
+        final long curStates = props.getLong(PowerSaver.KEY_CURRENT_STATES);
+        final long curSettings = props.getLong(PowerSaver.KEY_CURRENT_SETTINGS);
+        final float curWatt = props.getFloat(PowerSaver.KEY_CURRENT_CONSUMPTION);
+
+        // 0000.0 W in 5 digits, the first digit is at the low nibble of state byte.
+        final long wattDigits = KSBcd.pack(KSBcd.toFixed(curWatt, 1), CONSUMPTION_DIGITS);
 
         int stateData = 0;
         if (isOn) stateData |= (1 << 4);
@@ -209,9 +206,34 @@ public class KSPowerSaver extends KSDeviceContextBase {
         if ((curStates & PowerSaver.State.STANDBY_DETECTED) != 0) stateData |= (1 << 6);
         if ((curSettings & PowerSaver.Setting.STANDBY_BLOCKING_ON) != 0) stateData |= (1 << 7);
 
-        outData.append(stateData | (bcd1kw & 0x0F));
-        outData.append(((bcd100w & 0x0F) << 4) | (bcd10w & 0x0F));
-        outData.append(((bcd1w & 0x0F) << 4) | (bcd0d1w & 0x0F));
+        outData.append(stateData | (int) ((wattDigits >> 16) & 0x0F));
+        outData.append((int) ((wattDigits >> 8) & 0xFF));
+        outData.append((int) (wattDigits & 0xFF));
+    }
+
+    @Override
+    protected boolean splitStatusRspParts(KSPacket packet, int[] outOffsets) {
+        if (!KSAddress.toDeviceSubId(packet.deviceSubId).isFullOfGroup()) {
+            return false;
+        }
+
+        // Each single device parses whole data by itself to report the error.
+        if (packet.data.length < 4 || packet.data[0] != 0) {
+            return false;
+        }
+
+        // data1~: state bytes of each channel in order of index
+        for (int i = 1; i < 0x0F; i++) {
+            final int dataOffset = 1 + ((i - 1) * CHANNEL_STATE_BYTES);
+            if (dataOffset + CHANNEL_STATE_BYTES > packet.data.length) break;
+            outOffsets[i] = dataOffset;
+        }
+        return true;
+    }
+
+    @Override
+    protected @ParseResult int parseStatusRspPart(KSPacket packet, int offset, PropertyMap outProps) {
+        return parseChannelStateBytes(packet.data, offset, outProps);
     }
 
     private @ParseResult int parseChannelStateBytes(byte[] data, int offset, PropertyMap outProps) {
@@ -222,11 +244,6 @@ public class KSPowerSaver extends KSDeviceContextBase {
         }
 
         final int states  = ((data[offset + 0] & 0xF0));
-        final int bcd1kw  = ((data[offset + 0] & 0x0F));        // 1000W
-        final int bcd100w = ((data[offset + 1] & 0xF0) >> 4);   // 100W
-        final int bcd10w  = ((data[offset + 1] & 0x0F));        // 10W
-        final int bcd1w   = ((data[offset + 2] & 0xF0) >> 4);   // 1W
-        final int bcd0d1w = ((data[offset + 2] & 0x0F));        // 0.1W
 
         // Chennel on/off state
         boolean isOn = ((states & (1 << 4)) != 0);
@@ -244,13 +261,8 @@ public class KSPowerSaver extends KSDeviceContextBase {
         outProps.put(PowerSaver.PROP_CURRENT_SETTINGS, newSettings);
 
         // Current power consumption
-        float currentWatt = 0.0f;
-        currentWatt += bcd1kw  * 1000.0f;
-        currentWatt += bcd100w * 100.0f;
-        currentWatt += bcd10w  * 10.0f;
-        currentWatt += bcd1w   * 1.0f;
-        currentWatt += bcd0d1w * 0.1f;
-        currentWatt = Math.round(currentWatt * 10) / 10.0f;
+        // 0000.0 W from the low nibble of first byte.
+        final float currentWatt = KSBcd.readFixedFloat(data, offset * 2 + 1, CONSUMPTION_DIGITS, 1);
         outProps.put(PowerSaver.PROP_CURRENT_CONSUMPTION, currentWatt);
 
         return PARSE_OK_STATE_UPDATED;
@@ -494,14 +506,12 @@ public class KSPowerSaver extends KSDeviceContextBase {
         if (packet.data.length < 2) return PARSE_OK_NONE;
 
         if (isSingleDevice()) {
-            parseStandbyPowerData(packet.data[0], packet.data[1], outProps);
+            parseStandbyPowerData(packet.data, 0, outProps);
         } else {
             int dataCount = packet.data.length / 2;
             for (int i=0; i<dataCount && i<getChildCount(); i++) {
                 final KSPowerSaver child = getChildAt(KSPowerSaver.class, i);
-                final byte data1 = packet.data[i*2];
-                final byte data2 = packet.data[i*2+1];
-                child.parseStandbyPowerData(data1, data2, child.mRxPropertyMap);
+                child.parseStandbyPowerData(packet.data, i*2, child.mRxPropertyMap);
                 child.commitPropertyChanges(child.mRxPropertyMap);
             }
         }
@@ -549,20 +559,15 @@ public class KSPowerSaver extends KSDeviceContextBase {
 
         if (pktSubId.isSingle() || pktSubId.isSingleOfGroup()) {
             // Parse just single set of data since this is single device.
-            final byte data1 = packet.data[1];
-            final byte data2 = packet.data[2];
-            return parseStandbyPowerData(data1, data2, outProps);
+            return parseStandbyPowerData(packet.data, 1, outProps);
         } else if (pktSubId.isFullOfGroup()) {
             // From group data, parse only exact set of data associated to this single device.
             final int thisSingleId = thisSubId.value() & 0x0F;
             if (thisSingleId > 0x0 && thisSingleId < 0xF) {
                 final int thisSingleIndex = thisSingleId - 1;
-                final int data1Offset = 1 + (thisSingleIndex * 2);
-                final int data2Offset = data1Offset + 1;
-                if (data1Offset < packet.data.length && data2Offset < packet.data.length) {
-                    final byte data1 = packet.data[data1Offset];
-                    final byte data2 = packet.data[data2Offset];
-                    return parseStandbyPowerData(data1, data2, outProps);
+                final int dataOffset = 1 + (thisSingleIndex * 2);
+                if (dataOffset + 1 < packet.data.length) {
+                    return parseStandbyPowerData(packet.data, dataOffset, outProps);
                 }
             } else {
                 Log.w(TAG, FUNTAG + ": out of id range: " + thisSingleId);
@@ -574,19 +579,9 @@ public class KSPowerSaver extends KSDeviceContextBase {
         return PARSE_OK_NONE;
     }
 
-    private @ParseResult int parseStandbyPowerData(byte data1, byte data2, PropertyMap outProps) {
-        final int bcd100w = ((data1 & 0xF0) >> 4);   // 100W
-        final int bcd10w  = ((data1 & 0x0F));        // 10W
-        final int bcd1w   = ((data2 & 0xF0) >> 4);   // 1W
-        final int bcd0d1w = ((data2 & 0x0F));        // 0.1W
-
-        float standbyWatt = 0;
-        standbyWatt += bcd100w * 100.0f;
-        standbyWatt += bcd10w  * 10.0f;
-        standbyWatt += bcd1w   * 1.0f;
-        standbyWatt += bcd0d1w * 0.1f;
-
-        standbyWatt = Math.round(standbyWatt * 10) / 10.0f;
+    private @ParseResult int parseStandbyPowerData(byte[] data, int offset, PropertyMap outProps) {
+        // 000.0 W in 2 bytes.
+        final float standbyWatt = KSBcd.readFixedFloat(data, offset * 2, STANDBY_CONSUMPTION_DIGITS, 1);
 
         outProps.put(PowerSaver.PROP_STANDBY_CONSUMPTION, standbyWatt);
 
@@ -665,12 +660,7 @@ public class KSPowerSaver extends KSDeviceContextBase {
 
     private void makeStandbyPowerData(PropertyMap props, ByteArrayBuffer outData) {
         final float watt = props.get(PowerSaver.PROP_STANDBY_CONSUMPTION, Float.class);
-        float rest = Math.min(watt, 900.0F);
-        final int bcd100w = (int)(rest / 100.0f); rest -= ((float)bcd100w * 100.0f);
-        final int bcd10w  = (int)(rest / 10.0f);  rest -= ((float)bcd10w * 10.0f);
-        final int bcd1w   = (int)(rest / 1.0f);   rest -= ((float)bcd1w * 1.0f);
-        final int bcd0d1w = (int)(rest / 0.1f);   rest -= ((float)bcd0d1w * 0.1f);
-        outData.append((byte)((bcd100w << 4) | bcd10w));
-        outData.append((byte)((bcd1w << 4) | bcd0d1w));
+        // 000.0 W in 2 bytes.
+        KSBcd.appendFixed(outData, Math.min(watt, 900.0F), STANDBY_CONSUMPTION_DIGITS, 1);
     }
 }
@@ -139,7 +139,7 @@ public class KSThermostat extends KSDeviceContextBase {
 
         for (KSThermostat child: getChildren(KSThermostat.class)) {
             final PropertyMap childProps = child.getReadPropertyMap();
-            final long curStates = childProps.get(Thermostat.PROP_FUNCTION_STATES, Long.class);
+            final long curStates = childProps.getLong(Thermostat.KEY_FUNCTION_STATES);
             if ((curStates & Thermostat.Function.HEATING) != 0) heatingState |= (1 << devIndex);
             if ((curStates & Thermostat.Function.OUTING_SETTING) != 0) outingSetting |= (1 << devIndex);
             if ((curStates & Thermostat.Function.HOTWATER_ONLY) != 0) hotwaterOnly |= (1 << devIndex);
@@ -154,11 +154,11 @@ public class KSThermostat extends KSDeviceContextBase {
 
         for (KSThermostat child: getChildren(KSThermostat.class)) {
             final PropertyMap childProps = child.getReadPropertyMap();
-            final float tempRes = childProps.get(Thermostat.PROP_TEMP_RESOLUTION, Float.class);
-            final float minTemp = childProps.get(Thermostat.PROP_MIN_TEMPERATURE, Float.class);
-            final float maxTemp = childProps.get(Thermostat.PROP_MAX_TEMPERATURE, Float.class);
-            final float setTemp = childProps.get(Thermostat.PROP_SETTING_TEMPERATURE, Float.class);
-            final float curTemp = childProps.get(Thermostat.PROP_CURRENT_TEMPERATURE, Float.class);
+            final float tempRes = childProps.getFloat(Thermostat.KEY_TEMP_RESOLUTION);
+            final float minTemp = childProps.getFloat(Thermostat.KEY_MIN_TEMPERATURE);
+            final float maxTemp = childProps.getFloat(Thermostat.KEY_MAX_TEMPERATURE);
+            final float setTemp = childProps.getFloat(Thermostat.KEY_SETTING_TEMPERATURE);
+            final float curTemp = childProps.getFloat(Thermostat.KEY_CURRENT_TEMPERATURE);
             outData.append(KSUtils.makeTemperatureByte(setTemp, minTemp, maxTemp, tempRes));
             outData.append(KSUtils.makeTemperatureByte(curTemp, minTemp, maxTemp, tempRes));
         }
@@ -226,8 +226,8 @@ public class KSThermostat extends KSDeviceContextBase {
             result = PARSE_OK_STATE_UPDATED;
         }
 
-        final float settingTemp = outProps.get(Thermostat.PROP_SETTING_TEMPERATURE, Float.class);
-        final float currentTemp = outProps.get(Thermostat.PROP_CURRENT_TEMPERATURE, Float.class);
+        final float settingTemp = outProps.getFloat(Thermostat.KEY_SETTING_TEMPERATURE);
+        final float currentTemp = outProps.getFloat(Thermostat.KEY_CURRENT_TEMPERATURE);
         int temperatureDataOffset = 5 + (devIndex * 2);
         float newSettingTemp = KSUtils.parseTemperatureByte(packet.data[temperatureDataOffset]);
         float newCurrentTemp = KSUtils.parseTemperatureByte(packet.data[temperatureDataOffset + 1]);
@@ -257,14 +257,14 @@ public class KSThermostat extends KSDeviceContextBase {
         data.append(mTemperatureDetectingType);
 
         final PropertyMap props = getReadPropertyMap();
-        final float maxTemp = props.get(Thermostat.PROP_MAX_TEMPERATURE, Float.class);
-        final float minTemp = props.get(Thermostat.PROP_MIN_TEMPERATURE, Float.class);
-        final float tempRes = props.get(Thermostat.PROP_TEMP_RESOLUTION, Float.class);
+        final float maxTemp = props.getFloat(Thermostat.KEY_MAX_TEMPERATURE);
+        final float minTemp = props.getFloat(Thermostat.KEY_MIN_TEMPERATURE);
+        final float tempRes = props.getFloat(Thermostat.KEY_TEMP_RESOLUTION);
         data.append(KSUtils.makeTemperatureByte(maxTemp, maxTemp, maxTemp, tempRes));
         data.append(KSUtils.makeTemperatureByte(minTemp, minTemp, minTemp, tempRes));
 
         int data5 = 0;
-        final long supportedFunctions = props.get(Thermostat.PROP_SUPPORTED_FUNCTIONS, Long.class);
+        final long supportedFunctions = props.getLong(Thermostat.KEY_SUPPORTED_FUNCTIONS);
         if ((supportedFunctions & Thermostat.Function.OUTING_SETTING) != 0L) data5 |= (1 << 1);
         if ((supportedFunctions & Thermostat.Function.HOTWATER_ONLY) != 0L)  data5 |= (1 << 2);
         if ((supportedFunctions & Thermostat.Function.RESERVED_MODE) != 0L)  data5 |= (1 << 3);
@@ -23,20 +23,54 @@ package kr.or.kashi.hde.ksx4506;
 public class KSUtils {
     private static final float EPSILON = 0.005f;
 
-    public static float parseTemperatureByte(byte data) {
-        float temperature = (data & 0x7F) * 1.0F;
-        if ((data & 0x80) != 0) {
-            temperature += 0.5F;
+    // Decoded temperatures of all the values of byte, 0x00 ~ 0x7F in degree and
+    // the highest bit for half degree.
+    private static final float[] TEMPERATURE_TABLE = new float[256];
+    static {
+        for (int i = 0; i < TEMPERATURE_TABLE.length; i++) {
+            TEMPERATURE_TABLE[i] = (i & 0x7F) + (((i & 0x80) != 0) ? 0.5F : 0.0F);
         }
-        return temperature;
+    }
+
+    public static float parseTemperatureByte(byte data) {
+        return TEMPERATURE_TABLE[data & 0xFF];
     }
 
     public static byte makeTemperatureByte(float temp, float min, float max, boolean canHaveHalf) {
-        final float resolution = canHaveHalf ? 0.5f : 1.0f;
-        return makeTemperatureByte(temp, min, max, resolution);
+        return makeTemperatureByte(temp, min, max, canHaveHalf ? 0.5f : 1.0f);
     }
 
     public static byte makeTemperatureByte(float temp, float min, float max, float resolution) {
+        final boolean isHalf = (resolution == 0.5f);
+        if (!isHalf && resolution != 1.0f) {
+            return makeTemperatureByteByUnit(temp, min, max, resolution);
+        }
+
+        // Round in the unit of resolution, the half of unit is rounded down.
+        // Dividing by 0.5 or 1.0 is exact, so is the same as roundByUnit().
+        final float units = temp / resolution;
+        int halves = (int) units;
+        if (units - (float) halves > 0.5f) halves++;
+        if (isHalf == false) halves <<= 1;
+
+        // Clamp value in range, that might not be on the unit of resolution.
+        if (halves > max * 2.0f || halves < min * 2.0f || halves < 0) {
+            final float clamped = Math.max(Math.min(halves / 2.0f, max), min);
+            return makeTemperatureByteOf(clamped, isHalf);
+        }
+
+        return (byte) ((halves >> 1) | ((halves & 1) << 7));
+    }
+
+    private static byte makeTemperatureByteOf(float temp, boolean canHaveHalf) {
+        byte tempByte = (byte)temp;
+        if (canHaveHalf && floatEquals(temp - (float)tempByte, 0.5f)) {
+            tempByte |= (byte)(1 << 7);
+        }
+        return tempByte;
+    }
+
+    private static byte makeTemperatureByteByUnit(float temp, float min, float max, float resolution) {
         // Round value by resolution
         temp = roundByUnit(temp, resolution);
 
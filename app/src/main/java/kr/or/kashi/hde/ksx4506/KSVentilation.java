@@ -39,6 +39,33 @@ public class KSVentilation extends KSDeviceContextBase {
     private static final String TAG = "KSVentilation";
     private static final boolean DBG = true;
 
+    // 0x01: running, 0x00: stopped
+    static final KSPacketLayout POWER_BYTE_LAYOUT = new KSPacketLayout.Builder()
+            .match(0, 0xFF, 0x01, HomeDevice.PROP_ONOFF)
+            .build();
+
+    static final KSPacketLayout ALARM_BYTE_LAYOUT = new KSPacketLayout.Builder()
+            .flags(0, Ventilation.PROP_OPERATION_ALARM,
+                    Ventilation.Alarm.FAN_OVERHEATING,
+                    Ventilation.Alarm.RECYCLER_CHANGE,
+                    Ventilation.Alarm.FILTER_CHANGE,
+                    Ventilation.Alarm.SMOKE_REMOVING,
+                    Ventilation.Alarm.HIGH_CO2_LEVEL,
+                    Ventilation.Alarm.HEATER_RUNNING)
+            .build();
+
+    // bit0~4: supported modes, bit5: co2 sensor supported
+    static final KSPacketLayout SUPPORT_BYTE_LAYOUT = new KSPacketLayout.Builder()
+            .flags(0, Ventilation.PROP_SUPPORTED_MODES,
+                    Ventilation.Mode.NORMAL,
+                    Ventilation.Mode.SLEEP,
+                    Ventilation.Mode.RECYCLE,
+                    Ventilation.Mode.AUTO,
+                    Ventilation.Mode.SAVING)
+            .flags(0, Ventilation.PROP_SUPPORTED_SENSORS, 0L, 0L, 0L, 0L, 0L,
+                    Ventilation.Sensor.CO2)
+            .build();
+
     public static final int CMD_POWER_CONTROL_REQ = CMD_SINGLE_CONTROL_REQ;
     public static final int CMD_POWER_CONTROL_RSP = CMD_SINGLE_CONTROL_RSP;
     public static final int CMD_FAN_SPEED_CONTROL_REQ = 0x42;
@@ -136,20 +163,11 @@ public class KSVentilation extends KSDeviceContextBase {
         final PropertyMap props = getReadPropertyMap();
         final ByteArrayBuffer data = new ByteArrayBuffer();
 
-        mMinFanSpeedLevel = props.get(Ventilation.PROP_MIN_FAN_SPEED, Integer.class);
-        mMaxFanSpeedLevel = props.get(Ventilation.PROP_MAX_FAN_SPEED, Integer.class);
+        mMinFanSpeedLevel = props.getInt(Ventilation.KEY_MIN_FAN_SPEED);
+        mMaxFanSpeedLevel = props.getInt(Ventilation.KEY_MAX_FAN_SPEED);
         data.append(mMaxFanSpeedLevel);
 
-        int supportByte = 0;
-        final long supportedModes = props.get(Ventilation.PROP_SUPPORTED_MODES, Long.class);
-        if ((supportedModes & Ventilation.Mode.NORMAL) != 0) supportByte |= (1 << 0);
-        if ((supportedModes & Ventilation.Mode.SLEEP) != 0) supportByte |= (1 << 1);
-        if ((supportedModes & Ventilation.Mode.RECYCLE) != 0) supportByte |= (1 << 2);
-        if ((supportedModes & Ventilation.Mode.AUTO) != 0) supportByte |= (1 << 3);
-        if ((supportedModes & Ventilation.Mode.SAVING) != 0) supportByte |= (1 << 4);
-        final long supportedSensors = props.get(Ventilation.PROP_SUPPORTED_SENSORS, Long.class);
-        if ((supportedSensors & Ventilation.Sensor.CO2) != 0) supportByte |= (1 << 5);
-        data.append(supportByte);
+        data.append(SUPPORT_BYTE_LAYOUT.encodeByte(props));
 
         // Send response packet
         sendPacket(createPacket(CMD_CHARACTERISTIC_RSP, data.toArray()));
@@ -171,18 +189,7 @@ public class KSVentilation extends KSDeviceContextBase {
         outProps.put(Ventilation.PROP_MAX_FAN_SPEED, mMaxFanSpeedLevel);
         outProps.put(Ventilation.PROP_CUR_FAN_SPEED, 0); // Set 0 as the meaning of off
 
-        final int data1 = packet.data[1] & 0xFF;
-        long supportedModes = 0;
-        if ((data1 & (1 << 0)) != 0) supportedModes |= Ventilation.Mode.NORMAL;
-        if ((data1 & (1 << 1)) != 0) supportedModes |= Ventilation.Mode.SLEEP;
-        if ((data1 & (1 << 2)) != 0) supportedModes |= Ventilation.Mode.RECYCLE;
-        if ((data1 & (1 << 3)) != 0) supportedModes |= Ventilation.Mode.AUTO;
-        if ((data1 & (1 << 4)) != 0) supportedModes |= Ventilation.Mode.SAVING;
-        outProps.put(Ventilation.PROP_SUPPORTED_MODES, supportedModes);
-
-        long supportedSensors = 0;
-        if ((data1 & (1 << 5)) != 0) supportedSensors |= Ventilation.Sensor.CO2;
-        outProps.put(Ventilation.PROP_SUPPORTED_SENSORS, supportedSensors);
+        SUPPORT_BYTE_LAYOUT.decodeByte(packet.data[1], outProps);
 
         return PARSE_OK_PEER_DETECTED;
     }
@@ -253,16 +260,15 @@ public class KSVentilation extends KSDeviceContextBase {
     }
 
     protected void makePowerStateByte(PropertyMap props, ByteArrayBuffer outData) {
-        outData.append(props.get(HomeDevice.PROP_ONOFF, Boolean.class) ? 0x01 : 0x00);
+        outData.append(POWER_BYTE_LAYOUT.encodeByte(props));
     }
 
     private void parsePowerStateByte(byte powerByte, PropertyMap outProps) {
-        final int running = powerByte & 0xFF;
-        outProps.put(HomeDevice.PROP_ONOFF, (running == 1));
+        POWER_BYTE_LAYOUT.decodeByte(powerByte, outProps);
     }
 
     protected void makeFanSpeedByte(PropertyMap props, ByteArrayBuffer outData) {
-        int curSpeed = props.get(Ventilation.PROP_CUR_FAN_SPEED, Integer.class);
+        int curSpeed = props.getInt(Ventilation.KEY_CUR_FAN_SPEED);
         outData.append(curSpeed);
     }
 
@@ -274,7 +280,7 @@ public class KSVentilation extends KSDeviceContextBase {
     }
 
     protected void makeHighCO2AlarmByte(PropertyMap props, ByteArrayBuffer outData) {
-        long opAlarms = props.get(Ventilation.PROP_OPERATION_ALARM, Long.class);
+        long opAlarms = props.getLong(Ventilation.KEY_OPERATION_ALARM);
         int co2OverByte = ((opAlarms & Ventilation.Alarm.HIGH_CO2_LEVEL) != 0) ? 0x01 : 0x00;
         outData.append(co2OverByte);
     }
@@ -285,7 +291,7 @@ public class KSVentilation extends KSDeviceContextBase {
     }
 
     protected void makeModeStateByte(PropertyMap props, ByteArrayBuffer outData) {
-        long mode = props.get(Ventilation.PROP_OPERATION_MODE, Long.class);
+        long mode = props.getLong(Ventilation.KEY_OPERATION_MODE);
         outData.append(modeToByte(mode));
     }
 
@@ -294,43 +300,28 @@ public class KSVentilation extends KSDeviceContextBase {
     }
 
     protected void makeAlarmStateByte(PropertyMap props, ByteArrayBuffer outData) {
-        int alarmByte = 0;
-        long opAlarms = props.get(Ventilation.PROP_OPERATION_ALARM, Long.class);
-        if ((opAlarms & Ventilation.Alarm.FAN_OVERHEATING) != 0) alarmByte |= (1 << 0);
-        if ((opAlarms & Ventilation.Alarm.RECYCLER_CHANGE) != 0) alarmByte |= (1 << 1);
-        if ((opAlarms & Ventilation.Alarm.FILTER_CHANGE) != 0) alarmByte |= (1 << 2);
-        if ((opAlarms & Ventilation.Alarm.SMOKE_REMOVING) != 0) alarmByte |= (1 << 3);
-        if ((opAlarms & Ventilation.Alarm.HIGH_CO2_LEVEL) != 0) alarmByte |= (1 << 4);
-        if ((opAlarms & Ventilation.Alarm.HEATER_RUNNING) != 0) alarmByte |= (1 << 5);
-        outData.append(alarmByte);
+        outData.append(ALARM_BYTE_LAYOUT.encodeByte(props));
     }
 
     private void parseAlarmStateByte(byte alarmByte, PropertyMap outProps) {
-        long newAlarms = 0;
-        if ((alarmByte & (1 << 0)) != 0) newAlarms |= Ventilation.Alarm.FAN_OVERHEATING;
-        if ((alarmByte & (1 << 1)) != 0) newAlarms |= Ventilation.Alarm.RECYCLER_CHANGE;
-        if ((alarmByte & (1 << 2)) != 0) newAlarms |= Ventilation.Alarm.FILTER_CHANGE;
-        if ((alarmByte & (1 << 3)) != 0) newAlarms |= Ventilation.Alarm.SMOKE_REMOVING;
-        if ((alarmByte & (1 << 4)) != 0) newAlarms |= Ventilation.Alarm.HIGH_CO2_LEVEL;
-        if ((alarmByte & (1 << 5)) != 0) newAlarms |= Ventilation.Alarm.HEATER_RUNNING;
-        outProps.put(Ventilation.PROP_OPERATION_ALARM, newAlarms);
+        ALARM_BYTE_LAYOUT.decodeByte(alarmByte, outProps);
     }
 
     protected boolean onPowerControlTask(PropertyMap reqProps, PropertyMap outProps) {
-        final boolean isOn = reqProps.get(HomeDevice.PROP_ONOFF, Boolean.class);
+        final boolean isOn = reqProps.getBoolean(HomeDevice.KEY_ONOFF);
         final byte data = (byte) ((isOn == true) ? 0x01 : 0x00);
         sendPacket(createPacket(CMD_POWER_CONTROL_REQ, data));
         return true;
     }
 
     protected boolean onFanSpeedControlTask(PropertyMap reqProps, PropertyMap outProps) {
-        final int fanSpeed = reqProps.get(Ventilation.PROP_CUR_FAN_SPEED, Integer.class);
+        final int fanSpeed = reqProps.getInt(Ventilation.KEY_CUR_FAN_SPEED);
         sendPacket(createPacket(CMD_FAN_SPEED_CONTROL_REQ, (byte)fanSpeed));
         return true;
     }
 
     protected boolean onModeControlTask(PropertyMap reqProps, PropertyMap outProps) {
-        final long mode = reqProps.get(Ventilation.PROP_OPERATION_MODE, Long.class);
+        final long mode = reqProps.getLong(Ventilation.KEY_OPERATION_MODE);
         sendPacket(createPacket(CMD_MODE_CONTROL_REQ, modeToByte(mode)));
         return true;
     }
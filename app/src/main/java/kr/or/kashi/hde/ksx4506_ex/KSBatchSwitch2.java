@@ -153,9 +153,11 @@ public class KSBatchSwitch2 extends KSBatchSwitch {
         final long newStates = reqProps.get(BatchSwitch.PROP_SWITCH_STATES, Long.class);
         final long difStates = curStates ^ newStates;
 
+        final PropertyMap.BitsEditor statesEditor = outProps.editBits(BatchSwitch.PROP_SWITCH_STATES);
+
         if ((difStates & BatchSwitch.Switch.THREEWAY_LIGHT) != 0) {
             // Update the property map with changed value directly since wallpad manages its state.
-            outProps.putBits(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.THREEWAY_LIGHT, newStates);
+            statesEditor.copy(BatchSwitch.Switch.THREEWAY_LIGHT, newStates);
             // Send current state of 3-way-light to device
             int threewayOn = ((newStates & BatchSwitch.Switch.THREEWAY_LIGHT) != 0) ? (0x01) : (0x00);
             sendPacket(createPacket(CMD_3WAYLIGHT_STATUS_UPDATE_REQ, (byte)threewayOn));
@@ -163,7 +165,7 @@ public class KSBatchSwitch2 extends KSBatchSwitch {
 
         if ((difStates & BatchSwitch.Switch.COOKTOP_OFF) != 0) {
             // Update the property map with changed value directly since wallpad manages its state.
-            outProps.putBits(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.COOKTOP_OFF, newStates);
+            statesEditor.copy(BatchSwitch.Switch.COOKTOP_OFF, newStates);
             // Send current state of cook-top to device
             int cooktopOff = ((newStates & BatchSwitch.Switch.COOKTOP_OFF) != 0) ? (1) : (0);
             sendPacket(createPacket(CMD_COOKTOP_STATUS_UPDATE_REQ, (byte)(1 - cooktopOff)));
@@ -187,11 +189,13 @@ public class KSBatchSwitch2 extends KSBatchSwitch {
 
         if ((difStates & BatchSwitch.Switch.HEATER_SAVING) != 0) {
             // Update the property map with changed value directly since wallpad manages its state.
-            outProps.putBits(BatchSwitch.PROP_SWITCH_STATES, BatchSwitch.Switch.HEATER_SAVING, newStates);
+            statesEditor.copy(BatchSwitch.Switch.HEATER_SAVING, newStates);
             // Reschedule the status request command since the states that must be reported to the device.
             requestUpdate();
         }
 
+        statesEditor.apply(); // Put all the changed bits at once
+
         return true;
     }
 
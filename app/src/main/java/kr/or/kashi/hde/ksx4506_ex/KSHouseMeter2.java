@@ -25,6 +25,7 @@ import kr.or.kashi.hde.MainContext;
 import kr.or.kashi.hde.HomeDevice;
 import kr.or.kashi.hde.device.HouseMeter;
 import kr.or.kashi.hde.ksx4506.KSAddress;
+import kr.or.kashi.hde.ksx4506.KSBcd;
 import kr.or.kashi.hde.ksx4506.KSDeviceContextBase;
 import kr.or.kashi.hde.ksx4506.KSHouseMeter;
 import kr.or.kashi.hde.ksx4506.KSPacket;
@@ -47,6 +48,8 @@ public class KSHouseMeter2 extends KSHouseMeter {
             = KSHouseMeter.TOTAL_METER_BYTES + 1;
     public static final int EXTENDED_METER_DATA_BYTES
             = EXTENDED_CURRENT_METER_BYTES + EXTENDED_TOTAL_METER_BYTES;
+    public static final int EXTENDED_TOTAL_METER_DIGITS
+            = EXTENDED_TOTAL_METER_BYTES * 2;
 
     private boolean mExtendedMeterDigits = false;
 
@@ -54,6 +57,11 @@ public class KSHouseMeter2 extends KSHouseMeter {
         super(mainContext, defaultProps);
     }
 
+    @Override
+    protected int getMeterDataBytes() {
+        return mExtendedMeterDigits ? EXTENDED_METER_DATA_BYTES : super.getMeterDataBytes();
+    }
+
     @Override
     protected @ParseResult int parseMeterDataBytes(byte[] data, int dataOffset, int meterIndex, PropertyMap outProps) {
         if (mExtendedMeterDigits == false) {
@@ -71,65 +79,16 @@ public class KSHouseMeter2 extends KSHouseMeter {
             return PARSE_ERROR_MALFORMED_PACKET;
         }
 
-        final int type = (Integer) getProperty(HouseMeter.PROP_METER_TYPE).getValue();
-
-        final int cd1 = ((data[meterOffset + 0] & 0xF0) >> 4);
-        final int cd2 = ((data[meterOffset + 0] & 0x0F));
-        final int cd3 = ((data[meterOffset + 1] & 0xF0) >> 4);
-        final int cd4 = ((data[meterOffset + 1] & 0x0F));
-        final int cd5 = ((data[meterOffset + 2] & 0xF0) >> 4);
-        final int cd6 = ((data[meterOffset + 2] & 0x0F));
-
-        final int td1 = ((data[meterOffset + 3] & 0xF0) >> 4);
-        final int td2 = ((data[meterOffset + 3] & 0x0F));
-        final int td3 = ((data[meterOffset + 4] & 0xF0) >> 4);
-        final int td4 = ((data[meterOffset + 4] & 0x0F));
-        final int td5 = ((data[meterOffset + 5] & 0xF0) >> 4);
-        final int td6 = ((data[meterOffset + 5] & 0x0F));
-        final int td7 = ((data[meterOffset + 6] & 0xF0) >> 4);
-        final int td8 = ((data[meterOffset + 6] & 0x0F));
-
-        double currentMeter = 0.0;
-        if (type == HouseMeter.MeterType.ELECTRICITY) {
-            currentMeter += ((double)cd1 * 100000.0);
-            currentMeter += ((double)cd2 * 10000.0);
-            currentMeter += ((double)cd3 * 1000.0);
-            currentMeter += ((double)cd4 * 100.0);
-            currentMeter += ((double)cd5 * 10.0);
-            currentMeter += ((double)cd6 * 1.0);
-        } else {
-            currentMeter += ((double)cd1 * 100.0);
-            currentMeter += ((double)cd2 * 10.0);
-            currentMeter += ((double)cd3 * 1.0);
-            currentMeter += ((double)cd4 * 0.1);
-            currentMeter += ((double)cd5 * 0.01);
-            currentMeter += ((double)cd6 * 0.001);
-            currentMeter = Math.round(currentMeter * 1000.0) / 1000.0;
-        }
+        final int type = mBasePropertyMap.getInt(HouseMeter.KEY_METER_TYPE);
+
+        final double currentMeter = KSBcd.readFixed(data, meterOffset * 2,
+                METER_DIGITS, getCurrentMeterFractionDigits(type));
         outProps.put(HouseMeter.PROP_CURRENT_METER_VALUE, currentMeter);
 
-        double totalMeter = 0.0;
-        if (type == HouseMeter.MeterType.ELECTRICITY) {
-            totalMeter += ((double)td1 * 1000000.0);
-            totalMeter += ((double)td2 * 100000.0);
-            totalMeter += ((double)td3 * 10000.0);
-            totalMeter += ((double)td4 * 1000.0);
-            totalMeter += ((double)td5 * 100.0);
-            totalMeter += ((double)td6 * 10.0);
-            totalMeter += ((double)td7 * 1.0);
-            totalMeter += ((double)td8 * 0.1);
-            totalMeter = Math.round(totalMeter * 10.0) / 10.0;
-        } else{
-            totalMeter += ((double)td1 * 100000.0);
-            totalMeter += ((double)td2 * 10000.0);
-            totalMeter += ((double)td3 * 1000.0);
-            totalMeter += ((double)td4 * 100.0);
-            totalMeter += ((double)td5 * 10.0);
-            totalMeter += ((double)td6 * 1.0);
-            totalMeter += ((double)td7 * 0.1);
-            totalMeter += ((double)td8 * 0.01);
-            totalMeter = Math.round(totalMeter * 100.0) / 100.0;
-        }
+        // Total meter is in 0000000.0 (electricity) or 000000.00 with extended digits.
+        final int totalFractionDigits = (type == HouseMeter.MeterType.ELECTRICITY) ? 1 : 2;
+        final double totalMeter = KSBcd.readFixed(data, (meterOffset + EXTENDED_CURRENT_METER_BYTES) * 2,
+                EXTENDED_TOTAL_METER_DIGITS, totalFractionDigits);
         outProps.put(HouseMeter.PROP_TOTAL_METER_VALUE, totalMeter);
 
         return PARSE_OK_STATE_UPDATED;
@@ -119,19 +119,36 @@ public class KSLight2 extends KSLight {
             return res;
         }
 
-        int toneStateOffset = 1 + mTotalCountInGroup;
-        int toneStateCount = packet.data.length - toneStateOffset;
-
         if (KSAddress.toDeviceSubId(packet.deviceSubId).hasFull()) {
-            for (int i=0; i<toneStateCount; i++) {
-                final int state = packet.data[toneStateOffset + i] & 0xFF;
-                parseSingleColorToneByte(state, outProps);
-            }
+            parseColorToneBytes(packet, outProps);
         }
 
         return PARSE_OK_STATE_UPDATED;
     }
 
+    @Override
+    protected @ParseResult int parseStatusRspPart(KSPacket packet, int offset, PropertyMap outProps) {
+        @ParseResult int res = super.parseStatusRspPart(packet, offset, outProps);
+        if (res <= PARSE_ERROR_UNKNOWN) {
+            return res;
+        }
+
+        // Tone states are not in order of index, but tagged with sub id.
+        parseColorToneBytes(packet, outProps);
+
+        return PARSE_OK_STATE_UPDATED;
+    }
+
+    private void parseColorToneBytes(KSPacket packet, PropertyMap outProps) {
+        int toneStateOffset = 1 + mTotalCountInGroup;
+        int toneStateCount = packet.data.length - toneStateOffset;
+
+        for (int i=0; i<toneStateCount; i++) {
+            final int state = packet.data[toneStateOffset + i] & 0xFF;
+            parseSingleColorToneByte(state, outProps);
+        }
+    }
+
     @Override
     protected int makeCharacteristicRsp(KSPacket reqPacket, PropertyMap outProps, ByteArrayBuffer outData) {
         @ParseResult int res = super.makeCharacteristicRsp(reqPacket, outProps, outData);
@@ -21,11 +21,12 @@ import android.content.Context;
 import android.os.Handler;
 import android.util.Log;
 
+import kr.or.kashi.hde.DeviceFactory;
 import kr.or.kashi.hde.HomeDevice;
 import kr.or.kashi.hde.device.*;
 import kr.or.kashi.hde.ksx4506.KSMainContext;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -35,15 +36,27 @@ public class KSMainContext2 extends KSMainContext {
     private static final String TAG = "KSMainContext2";
     private static final boolean DBG = true;
 
-    public KSMainContext2(Context context, boolean isSlaveMode) {
-        super(context, isSlaveMode);
+    private static final Map<Integer, DeviceFactory.ContextBuilder> sContextBuilderMap =
+            Collections.unmodifiableMap(createContextBuilderMap());
+
+    protected static Map<Integer, DeviceFactory.ContextBuilder> createContextBuilderMap() {
+        final Map<Integer, DeviceFactory.ContextBuilder> map = KSMainContext.createContextBuilderMap();
 
         // Override super's map with extended classes.
-        mAddressToClassMap.put(0x02, KSAirConditioner2.class);
-        mAddressToClassMap.put(0x33, KSBatchSwitch2.class);
-        mAddressToClassMap.put(0x12, KSGasValve2.class);
-        mAddressToClassMap.put(0x30, KSHouseMeter2.class);
-        mAddressToClassMap.put(0x0E, KSLight2.class);
-        mAddressToClassMap.put(0x32, KSVentilation2.class);
+        map.put(0x02, KSAirConditioner2::new);
+        map.put(0x33, KSBatchSwitch2::new);
+        map.put(0x12, KSGasValve2::new);
+        map.put(0x30, KSHouseMeter2::new);
+        map.put(0x0E, KSLight2::new);
+        map.put(0x32, KSVentilation2::new);
+        return map;
+    }
+
+    public KSMainContext2(Context context, boolean isSlaveMode) {
+        this(context, isSlaveMode, sContextBuilderMap);
+    }
+
+    protected KSMainContext2(Context context, boolean isSlaveMode, Map<Integer, DeviceFactory.ContextBuilder> contextBuilderMap) {
+        super(context, isSlaveMode, contextBuilderMap);
     }
 }
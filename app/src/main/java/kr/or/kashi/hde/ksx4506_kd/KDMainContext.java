@@ -20,10 +20,14 @@ package kr.or.kashi.hde.ksx4506_kd;
 import android.content.Context;
 import android.util.Log;
 
+import kr.or.kashi.hde.DeviceFactory;
 import kr.or.kashi.hde.device.*;
 import kr.or.kashi.hde.ksx4506.KDThermostat;
 import kr.or.kashi.hde.ksx4506_ex.KSMainContext2;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * Extended implementation of [KS X 4506] main context
  */
@@ -31,10 +35,18 @@ public class KDMainContext extends KSMainContext2 {
     private static final String TAG = "KDMainContext";
     private static final boolean DBG = true;
 
-    public KDMainContext(Context context, boolean isSlaveMode) {
-        super(context, isSlaveMode);
+    private static final Map<Integer, DeviceFactory.ContextBuilder> sContextBuilderMap =
+            Collections.unmodifiableMap(createContextBuilderMap());
+
+    protected static Map<Integer, DeviceFactory.ContextBuilder> createContextBuilderMap() {
+        final Map<Integer, DeviceFactory.ContextBuilder> map = KSMainContext2.createContextBuilderMap();
 
         // Override super's map with extended classes.
-        mAddressToClassMap.put(0x36, KDThermostat.class);
+        map.put(0x36, KDThermostat::new);
+        return map;
+    }
+
+    public KDMainContext(Context context, boolean isSlaveMode) {
+        super(context, isSlaveMode, sContextBuilderMap);
     }
 }
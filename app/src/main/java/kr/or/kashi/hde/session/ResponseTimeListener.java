@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.session;
+
+/**
+ * Listener of the time taken to respond, for the port that holds the line
+ * after receiving until it responds, such as the slave of RS-485 bus.
+ */
+public interface ResponseTimeListener {
+    /**
+     * Called after the response is written to the port.
+     * @param response The bytes of response, that must not be modified.
+     * @param rxTime The time ({@link System#nanoTime()}) when the last bytes have been received.
+     * @param txTime The time ({@link System#nanoTime()}) when the response started to be written.
+     */
+    void onResponseWritten(byte[] response, long rxTime, long txTime);
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.session;
+
+/**
+ * Responds to the frame right in the thread where it's received, before it
+ * goes through the input stream, for the port that has to respond in time
+ * such as the slave of RS-485 bus.
+ */
+public interface SlaveResponder {
+    /**
+     * Called with the bytes received at once from the port.
+     * @return The encoded response to be written right away, or {@code null}
+     *         if the bytes can't be answered here. The bytes are passed to the
+     *         input stream as well in both cases.
+     */
+    byte[] respond(byte[] data, int offset, int length);
+}
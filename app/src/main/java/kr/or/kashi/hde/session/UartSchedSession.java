@@ -27,6 +27,7 @@ import com.kdiwin.nova.uartsched.UartSchedPort;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -39,6 +40,7 @@ public class UartSchedSession extends NetworkSessionAdapter {
     private static final String TAG = "UartSchedSession";
     private static final boolean DBG = true;
     private static final int BUFFER_SIZE = 1024;
+    private static final byte[] EMPTY_DATA = new byte[0];
 
     public static final int PORT_TYPE_RS232 = UartSched.PORT_TYPE_RS232;
     public static final int PORT_TYPE_RS485 = UartSched.PORT_TYPE_RS485;
@@ -55,6 +57,22 @@ public class UartSchedSession extends NetworkSessionAdapter {
     private UartSchedPort.Callback mUartSchedPortCallback = new UartSchedPort.Callback() {
         @Override
         public void onDataReceived(UartSchedPort port, long scheduleId, byte[] data) {
+            final long rxTime = System.nanoTime();
+            if (mPortType == PORT_TYPE_RS485_SLAVE) {
+                // The port holds the line until any response is written.
+                mLastRxTime = rxTime;
+                mLineHeld.set(true);
+            }
+
+            final SlaveResponder responder = mSlaveResponder;
+            if (responder != null) {
+                // Write the response from this thread without passing through
+                // the stream and the queue of transmission.
+                final byte[] response = responder.respond(data, 0, data.length);
+                if (response != null) {
+                    scheduleOnPort(port, response, 0, 0, false);
+                }
+            }
             putData(data);
         }
 
@@ -100,6 +118,10 @@ public class UartSchedSession extends NetworkSessionAdapter {
     };
 
     private final Map<Long, ArraySet<PacketSchedule>> mPacketSchedules = new ConcurrentHashMap<>();
+    private volatile SlaveResponder mSlaveResponder;
+    private final AtomicBoolean mLineHeld = new AtomicBoolean(false);
+    private volatile long mLastRxTime = 0L;
+    private volatile ResponseTimeListener mResponseTimeListener;
 
     public UartSchedSession(Context context, Handler handler, int type, String name, int speed) {
         mContext = context;
@@ -154,10 +176,61 @@ public class UartSchedSession extends NetworkSessionAdapter {
         }
     }
 
+    /**
+     * Sets the responder that answers to received frames synchronously in the
+     * callback of port. It works only if the port is of slave type.
+     */
+    public void setSlaveResponder(SlaveResponder responder) {
+        if (responder != null && mPortType != PORT_TYPE_RS485_SLAVE) {
+            Log.w(TAG, "slave responder is not used by the port of type " + mPortType);
+            return;
+        }
+        mSlaveResponder = responder;
+    }
+
     @Override
     public void onWrite(byte[] b) {
-        if (mUartSchedPort == null) return;
-        mUartSchedPort.schedulePacket(b, 0, 0, false, false);
+        final UartSchedPort port = mUartSchedPort;
+        if (port == null) return;
+        scheduleOnPort(port, b, 0, 0, false);
+    }
+
+    /**
+     * Returns the port of slave to receive mode without responding, only if
+     * it's holding the line for the response of last received data.
+     */
+    public void releaseLine() {
+        final UartSchedPort port = mUartSchedPort;
+        if (port == null) return;
+        if (mLineHeld.compareAndSet(true, false)) {
+            // Writing nothing makes the port release the line.
+            port.schedulePacket(EMPTY_DATA, 0, 0, false, false);
+        }
+    }
+
+    /**
+     * Sets the listener of time taken to respond. It works only if the port is
+     * of slave type.
+     */
+    public void setResponseTimeListener(ResponseTimeListener listener) {
+        mResponseTimeListener = listener;
+    }
+
+    private long scheduleOnPort(UartSchedPort port, byte[] buf, long repeatCount,
+            long repeatIntervalMs, boolean allowSameRx) {
+        final boolean responding = mLineHeld.getAndSet(false);
+        final long txTime = System.nanoTime();
+
+        final long scheduleId = port.schedulePacket(buf, repeatCount, repeatIntervalMs, false, allowSameRx);
+
+        // Notify after writing not to delay the response. Writing nothing is
+        // just releasing the line, not a response.
+        final ResponseTimeListener listener = mResponseTimeListener;
+        if (responding && listener != null && buf.length > 0) {
+            listener.onResponseWritten(buf, mLastRxTime, txTime);
+        }
+
+        return scheduleId;
     }
 
     private static byte[] toByteArray(HomePacket packet) {
@@ -184,8 +257,8 @@ public class UartSchedSession extends NetworkSessionAdapter {
         final long repeatIntervalMs = schedule.getRepeatInterval();
         final boolean allowSameRx = schedule.allowSameRx();
 
-        final long scheduleId = mUartSchedPort.schedulePacket(
-                buf, repeatCount, repeatIntervalMs, false, allowSameRx);
+        final long scheduleId = scheduleOnPort(
+                mUartSchedPort, buf, repeatCount, repeatIntervalMs, allowSameRx);
         if (scheduleId < 0) return false;
 
         synchronized (mPacketSchedules) {
@@ -48,6 +48,7 @@ public class UsbNetworkSession extends NetworkSessionAdapter
     private final Context mContext;
     private final Handler mHandler = new Handler(Looper.getMainLooper());
     private final UsbManager mUsbManager;
+    private final int mDriverIndex;
     private UsbSerialPort mUsbSerialPort;
     private SerialInputOutputManager mUsbIoManager;
 
@@ -78,21 +79,30 @@ public class UsbNetworkSession extends NetworkSessionAdapter
     }
 
     public UsbNetworkSession(Context context) {
+        this(context, 0);
+    }
+
+    /**
+     * @param driverIndex Index of the driver in available drivers to open, so that
+     *                    several adapters can be used by each session at the same time.
+     */
+    public UsbNetworkSession(Context context, int driverIndex) {
         mContext = context;
         mUsbManager = (UsbManager) context.getSystemService(Context.USB_SERVICE);
+        mDriverIndex = driverIndex;
     }
 
     @Override
     public boolean onOpen() {
         // Find all available drivers from attached devices.
         List<UsbSerialDriver> availableDrivers = UsbSerialProber.getDefaultProber().findAllDrivers(mUsbManager);
-        if (availableDrivers.isEmpty()) {
-            Log.d(TAG, "no available driver!");
+        if (availableDrivers.size() <= mDriverIndex) {
+            Log.d(TAG, "no available driver! (index:" + mDriverIndex + ")");
             return false;
         }
 
-        // Open a connection to the first available driver.
-        UsbSerialDriver driver = availableDrivers.get(0);
+        // Open a connection to the driver at the index (first one by default).
+        UsbSerialDriver driver = availableDrivers.get(mDriverIndex);
         UsbDeviceConnection connection = mUsbManager.openDevice(driver.getDevice());
         if (connection == null && !mUsbManager.hasPermission(driver.getDevice())) {
             int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_MUTABLE : 0;
@@ -30,6 +30,8 @@ import java.util.concurrent.Executor;
 import kr.or.kashi.hde.HomePacket;
 import kr.or.kashi.hde.PacketSchedule;
 import kr.or.kashi.hde.session.NetworkSession;
+import kr.or.kashi.hde.session.ResponseTimeListener;
+import kr.or.kashi.hde.session.SlaveResponder;
 import kr.or.kashi.hde.session.UartSchedSession;
 
 public class StreamProcessor implements StreamCallback {
@@ -39,6 +41,7 @@ public class StreamProcessor implements StreamCallback {
     private final Context mContext;
     private final Executor mHandlerExecutor;
     private final Runnable mErrorRunnable;
+    private final String mName;
     private final List<Client> mClients = new ArrayList<>();
     private NetworkSession mNetworkSession;
     private StreamRxThread mRxThread;
@@ -50,9 +53,14 @@ public class StreamProcessor implements StreamCallback {
     }
 
     public StreamProcessor(Context context, Handler handler, Runnable errorRunnable) {
+        this(context, handler, errorRunnable, null);
+    }
+
+    public StreamProcessor(Context context, Handler handler, Runnable errorRunnable, String name) {
         mContext = context;
         mHandlerExecutor = handler::post;
         mErrorRunnable = errorRunnable;
+        mName = name;
     }
 
     public void addClient(Client client) {
@@ -86,6 +94,12 @@ public class StreamProcessor implements StreamCallback {
         mRxThread = new StreamRxThread(inputStream, this);
         mTxThread = new StreamTxThread(outputStream, this);
 
+        if (mName != null) {
+            // Distinguish threads of each stream when several networks are running.
+            mRxThread.setName(mRxThread.getName() + "-" + mName);
+            mTxThread.setName(mTxThread.getName() + "-" + mName);
+        }
+
         mRxThread.start();
         mTxThread.start();
 
@@ -108,6 +122,8 @@ public class StreamProcessor implements StreamCallback {
         }
 
         if (mNetworkSession != null) {
+            setSlaveResponder(null);
+            setResponseTimeListener(null);
             mNetworkSession.close();
             mNetworkSession = null;
         }
@@ -134,6 +150,34 @@ public class StreamProcessor implements StreamCallback {
         return false;
     }
 
+    public void releaseLine() {
+        // FIXME: Use general interface instead of concrete type of NetworkSession.
+        if (mNetworkSession instanceof UartSchedSession) {
+            UartSchedSession UartSchedSession = (UartSchedSession)mNetworkSession;
+            UartSchedSession.releaseLine();
+        }
+    }
+
+    public boolean setSlaveResponder(SlaveResponder responder) {
+        // FIXME: Use general interface instead of concrete type of NetworkSession.
+        if (mNetworkSession instanceof UartSchedSession) {
+            UartSchedSession UartSchedSession = (UartSchedSession)mNetworkSession;
+            UartSchedSession.setSlaveResponder(responder);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean setResponseTimeListener(ResponseTimeListener listener) {
+        // FIXME: Use general interface instead of concrete type of NetworkSession.
+        if (mNetworkSession instanceof UartSchedSession) {
+            UartSchedSession UartSchedSession = (UartSchedSession)mNetworkSession;
+            UartSchedSession.setResponseTimeListener(listener);
+            return true;
+        }
+        return false;
+    }
+
     public void cancelSchedule(PacketSchedule schedule) {
         // FIXME: Use general interface instead of concrete type of NetworkSession.
         if (mNetworkSession instanceof UartSchedSession) {
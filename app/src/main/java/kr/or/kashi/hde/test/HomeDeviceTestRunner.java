@@ -18,7 +18,6 @@
 package kr.or.kashi.hde.test;
 
 import android.os.Handler;
-import android.util.ArraySet;
 import android.util.Log;
 
 import junit.framework.TestCase;
@@ -28,7 +27,6 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executor;
@@ -41,7 +39,9 @@ public class HomeDeviceTestRunner implements Runnable {
 
     private final Handler mHandler;
     private final Executor mHandlerExecutor;
-    private final List<HomeDeviceTestCallback> mCallbacks = new ArrayList<>();
+    private final Object mLock = new Object();
+    // Immutable snapshot that is replaced on each change, so dispatching reads it without lock.
+    private volatile List<HomeDeviceTestCallback> mCallbacks = Collections.emptyList();
     private List<HomeDevice> mDevices = new ArrayList<>();
     private Thread mThread = null;
     private boolean mRun = true;
@@ -52,14 +52,20 @@ public class HomeDeviceTestRunner implements Runnable {
     }
 
     public void addCallback(HomeDeviceTestCallback callback) {
-        synchronized (mCallbacks) {
-            mCallbacks.add(callback);
+        synchronized (mLock) {
+            if (mCallbacks.contains(callback)) return;
+            final List<HomeDeviceTestCallback> callbacks = new ArrayList<>(mCallbacks);
+            callbacks.add(callback);
+            mCallbacks = Collections.unmodifiableList(callbacks);
         }
     }
 
     public void removeCallback(HomeDeviceTestCallback callback) {
-        synchronized (mCallbacks) {
-            mCallbacks.remove(callback);
+        synchronized (mLock) {
+            if (!mCallbacks.contains(callback)) return;
+            final List<HomeDeviceTestCallback> callbacks = new ArrayList<>(mCallbacks);
+            callbacks.remove(callback);
+            mCallbacks = Collections.unmodifiableList(callbacks);
         }
     }
 
@@ -103,66 +109,41 @@ public class HomeDeviceTestRunner implements Runnable {
     }
 
     private void callOnTestRunnerStarted() {
-        Collection<HomeDeviceTestCallback> callbacks;
-
-        synchronized (mCallbacks) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-
-        for (HomeDeviceTestCallback cb : callbacks) {
+        final List<HomeDeviceTestCallback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeDeviceTestCallback cb = callbacks.get(i);
             mHandlerExecutor.execute(cb::onTestRunnerStarted);
         }
     }
 
     private void callOnTestRunnerFinished() {
-        Collection<HomeDeviceTestCallback> callbacks;
-
-        synchronized (mCallbacks) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-
-        for (HomeDeviceTestCallback cb : callbacks) {
+        final List<HomeDeviceTestCallback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeDeviceTestCallback cb = callbacks.get(i);
             mHandlerExecutor.execute(cb::onTestRunnerFinished);
         }
     }
 
     private void callOnDeviceTestStarted(HomeDevice device) {
-        Collection<HomeDeviceTestCallback> callbacks;
-
-        synchronized (mCallbacks) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-
-        for (HomeDeviceTestCallback cb : callbacks) {
+        final List<HomeDeviceTestCallback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeDeviceTestCallback cb = callbacks.get(i);
             mHandlerExecutor.execute(() -> cb.onDeviceTestStarted(device));
         }
     }
 
     private void callOnDeviceTestExecuted(HomeDevice device, TestCase test, TestResult result, int progress) {
-        Collection<HomeDeviceTestCallback> callbacks;
-
-        synchronized (mCallbacks) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-
-        for (HomeDeviceTestCallback cb : callbacks) {
+        final List<HomeDeviceTestCallback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeDeviceTestCallback cb = callbacks.get(i);
             mHandlerExecutor.execute(() -> cb.onDeviceTestExecuted(device, test, result, progress));
         }
     }
 
     private void callOnDeviceTestFinished(HomeDevice device) {
-        Collection<HomeDeviceTestCallback> callbacks;
-
-        synchronized (mCallbacks) {
-            if (mCallbacks.isEmpty()) return;
-            callbacks = new ArraySet<>(mCallbacks);
-        }
-
-        for (HomeDeviceTestCallback cb : callbacks) {
+        final List<HomeDeviceTestCallback> callbacks = mCallbacks;
+        for (int i = 0; i < callbacks.size(); i++) {
+            final HomeDeviceTestCallback cb = callbacks.get(i);
             mHandlerExecutor.execute(() -> cb.onDeviceTestFinished(device));
         }
     }
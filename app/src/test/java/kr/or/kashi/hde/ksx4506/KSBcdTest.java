@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.ksx4506;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import kr.or.kashi.hde.base.ByteArrayBuffer;
+import kr.or.kashi.hde.ksx4506_ex.KSHouseMeter2;
+
+import org.junit.Test;
+
+public class KSBcdTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void bcdByte_roundTrip() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, KSBcd.fromBcd(KSBcd.toBcd(i)));
+        }
+        assertEquals(0x59, KSBcd.toBcd(59));
+        assertEquals(59, KSBcd.fromBcd(0x59));
+    }
+
+    @Test
+    public void currentMeter_electricity() {
+        // 000000, no fraction
+        assertRoundTrip(123456.0, KSHouseMeter.METER_DIGITS, 0, new byte[] { 0x12, 0x34, 0x56 });
+        assertRoundTrip(0.0, KSHouseMeter.METER_DIGITS, 0, new byte[] { 0x00, 0x00, 0x00 });
+        assertRoundTrip(999999.0, KSHouseMeter.METER_DIGITS, 0, new byte[] { (byte) 0x99, (byte) 0x99, (byte) 0x99 });
+    }
+
+    @Test
+    public void currentMeter_others() {
+        // 000.000
+        assertRoundTrip(123.456, KSHouseMeter.METER_DIGITS, 3, new byte[] { 0x12, 0x34, 0x56 });
+        assertRoundTrip(0.001, KSHouseMeter.METER_DIGITS, 3, new byte[] { 0x00, 0x00, 0x01 });
+    }
+
+    @Test
+    public void totalMeter() {
+        // 00000.0
+        assertRoundTrip(12345.6, KSHouseMeter.METER_DIGITS, 1, new byte[] { 0x12, 0x34, 0x56 });
+        // 0000.00 (heating)
+        assertRoundTrip(1234.56, KSHouseMeter.METER_DIGITS, 2, new byte[] { 0x12, 0x34, 0x56 });
+        assertRoundTrip(0.01, KSHouseMeter.METER_DIGITS, 2, new byte[] { 0x00, 0x00, 0x01 });
+    }
+
+    @Test
+    public void extendedTotalMeter() {
+        final int digits = KSHouseMeter2.EXTENDED_TOTAL_METER_DIGITS;
+        assertEquals(8, digits);
+        // 0000000.0 (electricity)
+        assertRoundTrip(1234567.8, digits, 1, new byte[] { 0x12, 0x34, 0x56, 0x78 });
+        // 000000.00
+        assertRoundTrip(123456.78, digits, 2, new byte[] { 0x12, 0x34, 0x56, 0x78 });
+    }
+
+    @Test
+    public void powerSaverConsumption_oddNibbleOffset() {
+        // 0000.0 W in 5 digits, the first digit is at the low nibble of state byte.
+        final long packed = KSBcd.pack(KSBcd.toFixed(1234.5, 1), KSPowerSaver.CONSUMPTION_DIGITS);
+        assertEquals(0x12345L, packed);
+
+        final int stateBits = 0xF0;
+        final byte[] data = new byte[] {
+                (byte) (stateBits | ((packed >> 16) & 0x0F)),
+                (byte) ((packed >> 8) & 0xFF),
+                (byte) (packed & 0xFF),
+        };
+        assertArrayEquals(new byte[] { (byte) 0xF1, 0x23, 0x45 }, data);
+        assertEquals(12345L, KSBcd.readDigits(data, 1, KSPowerSaver.CONSUMPTION_DIGITS));
+        assertEquals(1234.5f, KSBcd.readFixedFloat(data, 1, KSPowerSaver.CONSUMPTION_DIGITS, 1), 0.0f);
+
+        // Same digits starting at the odd nibble after a leading byte.
+        final byte[] shifted = new byte[] { 0x7F, 0x01, 0x23, 0x45 };
+        assertEquals(123.45, KSBcd.readFixed(shifted, 3, KSPowerSaver.CONSUMPTION_DIGITS, 2), DELTA);
+    }
+
+    @Test
+    public void powerSaverStandbyConsumption() {
+        // 000.0 W in 4 digits
+        assertRoundTrip(123.4, KSPowerSaver.STANDBY_CONSUMPTION_DIGITS, 1, new byte[] { 0x12, 0x34 });
+        assertRoundTrip(900.0, KSPowerSaver.STANDBY_CONSUMPTION_DIGITS, 1, new byte[] { (byte) 0x90, 0x00 });
+
+        final ByteArrayBuffer out = new ByteArrayBuffer();
+        KSBcd.appendFixed(out, 0.3f, KSPowerSaver.STANDBY_CONSUMPTION_DIGITS, 1);
+        assertEquals(0.3f, KSBcd.readFixedFloat(out.toArray(), 0, KSPowerSaver.STANDBY_CONSUMPTION_DIGITS, 1), 0.0f);
+    }
+
+    @Test
+    public void toFixed_roundsHalfUp() {
+        assertEquals(1L, KSBcd.toFixed(0.05, 1));
+        assertEquals(0L, KSBcd.toFixed(0.04, 1));
+        assertEquals(1001L, KSBcd.toFixed(1.0005, 3)); // 1.000499.. in double
+        assertEquals(1000L, KSBcd.toFixed(1.0004, 3));
+        assertEquals(3L, KSBcd.toFixed(2.5, 0));
+    }
+
+    @Test
+    public void toFixed_negativeIsZero() {
+        assertEquals(0L, KSBcd.toFixed(-1.5, 1));
+        assertEquals(0L, KSBcd.toFixed(Double.NaN, 1));
+    }
+
+    @Test
+    public void appendFixed_roundsHalfUp() {
+        assertEncoded(new byte[] { 0x00, 0x00, 0x01 }, 0.0005, KSHouseMeter.METER_DIGITS, 3);
+        assertEncoded(new byte[] { 0x12, 0x34, 0x57 }, 1234.565, KSHouseMeter.METER_DIGITS, 2);
+        assertEncoded(new byte[] { 0x12, 0x34, 0x56 }, 1234.564, KSHouseMeter.METER_DIGITS, 2);
+    }
+
+    @Test
+    public void appendFixed_dropsOverflowedDigits() {
+        // Only the lowest digits are kept, as the meter wraps around.
+        assertEncoded(new byte[] { 0x23, 0x45, 0x67 }, 1234567.0, KSHouseMeter.METER_DIGITS, 0);
+        assertEncoded(new byte[] { 0x00, 0x00, 0x00 }, 1000000.0, KSHouseMeter.METER_DIGITS, 0);
+        assertEncoded(new byte[] { 0x23, 0x45 }, 1234.5, KSPowerSaver.STANDBY_CONSUMPTION_DIGITS, 1);
+        // Rounding up to the digit over also wraps.
+        assertEncoded(new byte[] { 0x00, 0x00, 0x00 }, 99999.96, KSHouseMeter.METER_DIGITS, 1);
+    }
+
+    @Test
+    public void pack_oddDigitsDropsDigitOver() {
+        assertEquals(0x23456L, KSBcd.pack(123456L, 5));
+        assertEquals(0x99999L, KSBcd.pack(99999L, 5));
+    }
+
+    private static void assertRoundTrip(double value, int digits, int fractionDigits, byte[] expected) {
+        final byte[] encoded = assertEncoded(expected, value, digits, fractionDigits);
+        assertEquals(value, KSBcd.readFixed(encoded, 0, digits, fractionDigits), DELTA * KSBcd.pow10(digits));
+        assertEquals(Math.round(value * KSBcd.pow10(fractionDigits)), KSBcd.readDigits(encoded, 0, digits));
+    }
+
+    private static byte[] assertEncoded(byte[] expected, double value, int digits, int fractionDigits) {
+        final ByteArrayBuffer out = new ByteArrayBuffer();
+        KSBcd.appendFixed(out, value, digits, fractionDigits);
+        final byte[] encoded = out.toArray();
+        assertArrayEquals(expected, encoded);
+        return encoded;
+    }
+}
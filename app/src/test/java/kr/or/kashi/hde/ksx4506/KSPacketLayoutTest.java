@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2023 Korea Association of AI Smart Home.
+ * Copyright (C) 2023 KyungDong Navien Co, Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kr.or.kashi.hde.ksx4506;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import kr.or.kashi.hde.HomeDevice;
+import kr.or.kashi.hde.base.BasicPropertyMap;
+import kr.or.kashi.hde.base.PropertyMap;
+import kr.or.kashi.hde.device.DoorLock;
+import kr.or.kashi.hde.device.GasValve;
+import kr.or.kashi.hde.device.Light;
+import kr.or.kashi.hde.device.Ventilation;
+
+import org.junit.Test;
+
+public class KSPacketLayoutTest {
+
+    @Test
+    public void lightState() {
+        // on, dimmable, level 9
+        final PropertyMap props = decode(KSLight.STATE_BYTE_LAYOUT, 0x93);
+        assertTrue(props.get(HomeDevice.PROP_ONOFF, Boolean.class));
+        assertTrue(props.get(Light.PROP_DIM_SUPPORTED, Boolean.class));
+        assertEquals(9, (int) props.get(Light.PROP_CUR_DIM_LEVEL, Integer.class));
+        assertEquals(0x93, KSLight.STATE_BYTE_LAYOUT.encodeByte(props));
+
+        // off, not dimmable, bits not used are ignored
+        final PropertyMap offProps = decode(KSLight.STATE_BYTE_LAYOUT, 0x0C);
+        assertFalse(offProps.get(HomeDevice.PROP_ONOFF, Boolean.class));
+        assertFalse(offProps.get(Light.PROP_DIM_SUPPORTED, Boolean.class));
+        assertEquals(0, (int) offProps.get(Light.PROP_CUR_DIM_LEVEL, Integer.class));
+        assertEquals(0x00, KSLight.STATE_BYTE_LAYOUT.encodeByte(offProps));
+    }
+
+    @Test
+    public void lightState_dimLevelIsMasked() {
+        final PropertyMap props = new BasicPropertyMap();
+        props.put(HomeDevice.PROP_ONOFF, false);
+        props.put(Light.PROP_DIM_SUPPORTED, false);
+        props.put(Light.PROP_CUR_DIM_LEVEL, 0x1F);
+        assertEquals(0xF0, KSLight.STATE_BYTE_LAYOUT.encodeByte(props));
+    }
+
+    @Test
+    public void doorLockState() {
+        final PropertyMap props = decode(KSDoorLock.STATE_BYTE_LAYOUT, 0x03);
+        assertEquals(DoorLock.State.DOOR_OPENED | DoorLock.State.EMERGENCY_ALARMED,
+                (long) props.get(DoorLock.PROP_CURRENT_STATES, Long.class));
+        assertTrue(props.get(HomeDevice.PROP_ONOFF, Boolean.class));
+        assertEquals(0x03, KSDoorLock.STATE_BYTE_LAYOUT.encodeByte(props));
+
+        final PropertyMap closedProps = decode(KSDoorLock.STATE_BYTE_LAYOUT, 0x02);
+        assertEquals(DoorLock.State.EMERGENCY_ALARMED,
+                (long) closedProps.get(DoorLock.PROP_CURRENT_STATES, Long.class));
+        assertFalse(closedProps.get(HomeDevice.PROP_ONOFF, Boolean.class));
+    }
+
+    @Test
+    public void doorLockState_onOffIsDecodeOnly() {
+        final PropertyMap props = new BasicPropertyMap();
+        props.put(HomeDevice.PROP_ONOFF, true);
+        props.put(DoorLock.PROP_CURRENT_STATES, 0L);
+        assertEquals(0x00, KSDoorLock.STATE_BYTE_LAYOUT.encodeByte(props));
+    }
+
+    @Test
+    public void doorLockStateRsp_includesStateByteAtOffset1() {
+        final KSPacketLayout layout = KSDoorLock.STATE_RSP_LAYOUT;
+        assertEquals(2, layout.getLength());
+
+        final PropertyMap props = new BasicPropertyMap();
+        assertTrue(layout.decode(new byte[] { 0x00, 0x01 }, 0, props));
+        assertEquals(DoorLock.State.DOOR_OPENED, (long) props.get(DoorLock.PROP_CURRENT_STATES, Long.class));
+        assertTrue(props.get(HomeDevice.PROP_ONOFF, Boolean.class));
+
+        final byte[] data = new byte[layout.getLength()];
+        layout.encode(props, data, 0);
+        assertArrayEquals(new byte[] { 0x00, 0x01 }, data);
+    }
+
+    @Test
+    public void gasValveState() {
+        // changing, buzzer on, gas leaked
+        final PropertyMap props = decode(KSGasValve.STATE_BYTE_LAYOUT, 0x1C);
+        assertTrue(props.get(HomeDevice.PROP_ONOFF, Boolean.class));
+        assertEquals(GasValve.State.GAS_VALVE, (long) props.get(GasValve.PROP_CURRENT_STATES, Long.class));
+        assertEquals(GasValve.Alarm.EXTINGUISHER_BUZZING | GasValve.Alarm.GAS_LEAKAGE_DETECTED,
+                (long) props.get(GasValve.PROP_CURRENT_ALARMS, Long.class));
+
+        // closed
+        final PropertyMap closedProps = decode(KSGasValve.STATE_BYTE_LAYOUT, 0x02);
+        assertFalse(closedProps.get(HomeDevice.PROP_ONOFF, Boolean.class));
+        assertEquals(0L, (long) closedProps.get(GasValve.PROP_CURRENT_STATES, Long.class));
+        assertEquals(0L, (long) closedProps.get(GasValve.PROP_CURRENT_ALARMS, Long.class));
+    }
+
+    @Test
+    public void gasValveState_onlyAlarmsAreEncoded() {
+        final PropertyMap props = new BasicPropertyMap();
+        props.put(HomeDevice.PROP_ONOFF, true);
+        props.put(GasValve.PROP_CURRENT_STATES, GasValve.State.GAS_VALVE);
+        props.put(GasValve.PROP_CURRENT_ALARMS, GasValve.Alarm.GAS_LEAKAGE_DETECTED);
+        assertEquals(0x10, KSGasValve.STATE_BYTE_LAYOUT.encodeByte(props));
+    }
+
+    @Test
+    public void gasValveCharac() {
+        final PropertyMap props = decode(KSGasValve.CHARAC_BYTE_LAYOUT, 0x02);
+        assertEquals(GasValve.Alarm.GAS_LEAKAGE_DETECTED, (long) props.get(GasValve.PROP_SUPPORTED_ALARMS, Long.class));
+        assertEquals(0x02, KSGasValve.CHARAC_BYTE_LAYOUT.encodeByte(props));
+    }
+
+    @Test
+    public void ventilationPower() {
+        assertTrue(decode(KSVentilation.POWER_BYTE_LAYOUT, 0x01).get(HomeDevice.PROP_ONOFF, Boolean.class));
+        assertFalse(decode(KSVentilation.POWER_BYTE_LAYOUT, 0x00).get(HomeDevice.PROP_ONOFF, Boolean.class));
+        // Only exact 0x01 is running.
+        assertFalse(decode(KSVentilation.POWER_BYTE_LAYOUT, 0x03).get(HomeDevice.PROP_ONOFF, Boolean.class));
+        assertEquals(0x01, KSVentilation.POWER_BYTE_LAYOUT.encodeByte(decode(KSVentilation.POWER_BYTE_LAYOUT, 0x01)));
+    }
+
+    @Test
+    public void ventilationAlarm() {
+        final PropertyMap props = decode(KSVentilation.ALARM_BYTE_LAYOUT, 0x25);
+        assertEquals(Ventilation.Alarm.FAN_OVERHEATING | Ventilation.Alarm.FILTER_CHANGE
+                | Ventilation.Alarm.HEATER_RUNNING, (long) props.get(Ventilation.PROP_OPERATION_ALARM, Long.class));
+        assertEquals(0x25, KSVentilation.ALARM_BYTE_LAYOUT.encodeByte(props));
+    }
+
+    @Test
+    public void ventilationSupport() {
+        final PropertyMap props = decode(KSVentilation.SUPPORT_BYTE_LAYOUT, 0x29);
+        assertEquals(Ventilation.Mode.NORMAL | Ventilation.Mode.AUTO,
+                (long) props.get(Ventilation.PROP_SUPPORTED_MODES, Long.class));
+        assertEquals(Ventilation.Sensor.CO2, (long) props.get(Ventilation.PROP_SUPPORTED_SENSORS, Long.class));
+        assertEquals(0x29, KSVentilation.SUPPORT_BYTE_LAYOUT.encodeByte(props));
+    }
+
+    @Test
+    public void include_decodesAtBaseOffset() {
+        final KSPacketLayout layout = new KSPacketLayout.Builder()
+                .bit(0, 7, HomeDevice.PROP_ONOFF)
+                .include(2, KSLight.STATE_BYTE_LAYOUT)
+                .build();
+        assertEquals(3, layout.getLength());
+
+        final PropertyMap props = new BasicPropertyMap();
+        assertTrue(layout.decode(new byte[] { 0x55, (byte) 0x80, 0x00, 0x52 }, 1, props));
+        assertTrue(props.get(Light.PROP_DIM_SUPPORTED, Boolean.class));
+        assertEquals(5, (int) props.get(Light.PROP_CUR_DIM_LEVEL, Integer.class));
+        // Fields are in order of offset, so the included one is decoded last.
+        assertFalse(props.get(HomeDevice.PROP_ONOFF, Boolean.class));
+    }
+
+    @Test
+    public void decode_tooShortData() {
+        final PropertyMap props = new BasicPropertyMap();
+        assertFalse(KSDoorLock.STATE_RSP_LAYOUT.decode(new byte[] { 0x00 }, 0, props));
+        assertFalse(KSDoorLock.STATE_RSP_LAYOUT.decode(new byte[] { 0x00, 0x01 }, 1, props));
+        assertEquals(0, props.getAll().size());
+    }
+
+    private static PropertyMap decode(KSPacketLayout layout, int b) {
+        final PropertyMap props = new BasicPropertyMap();
+        layout.decodeByte((byte) b, props);
+        return props;
+    }
+}